@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Class-loader which loads from files that are not exposed as {@link java.net.URLClassLoader} URLs.
+ *
+ * These files are part of the class-path fingerprint of cached compiled scripts.
+ *
+ * @since 2.2.0
+ */
+public interface ClasspathFiles
+{
+  List<File> getFiles();
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter;
+
+import java.util.Set;
+
+/**
+ * Index of the packages and classes of a class path, used by shell completion.
+ *
+ * @since 2.2.0
+ */
+public interface CompletionIndex
+{
+  /**
+   * Returns the simple names of the sub-packages and classes of the given package; the root packages for an empty
+   * package name.
+   */
+  Set<String> getContents(String packageName);
+}
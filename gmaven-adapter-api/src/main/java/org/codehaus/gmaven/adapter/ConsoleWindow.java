@@ -16,6 +16,7 @@
 package org.codehaus.gmaven.adapter;
 
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
@@ -34,9 +35,32 @@ public interface ConsoleWindow
     void await() throws InterruptedException;
   }
 
+  /**
+   * Class-loaders and context of scripts run by the console.
+   *
+   * @since 2.2.0
+   */
+  interface Environment
+  {
+    ClassLoader getClassLoader();
+
+    ResourceLoader getResourceLoader();
+
+    Map<String, Object> getContext();
+  }
+
   WindowHandle open(ClassLoader classLoader,
                     ResourceLoader resourceLoader,
                     Map<String, Object> context,
                     @Nullable Map<String, Object> options)
       throws Exception;
+
+  /**
+   * Open the window right away, while the environment is still being prepared; scripts run once it is available.
+   *
+   * @since 2.2.0
+   */
+  WindowHandle open(Future<Environment> environment,
+                    @Nullable Map<String, Object> options)
+      throws Exception;
 }
\ No newline at end of file
@@ -28,5 +28,10 @@ public interface GroovyRuntime
 
   ShellRunner createShellRunner();
 
+  /**
+   * @since 2.2.0
+   */
+  ScriptPrecompiler createScriptPrecompiler();
+
   void cleanup();
 }
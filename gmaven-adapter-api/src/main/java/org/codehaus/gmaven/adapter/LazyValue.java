@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter;
+
+import javax.annotation.Nullable;
+
+/**
+ * Context value which is computed when the script first reads the variable.
+ *
+ * @since 2.2.0
+ */
+public interface LazyValue
+{
+  @Nullable
+  Object get() throws Exception;
+}
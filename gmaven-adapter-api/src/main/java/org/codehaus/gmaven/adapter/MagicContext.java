@@ -26,5 +26,14 @@ public enum MagicContext
    * Context value will be replaced by a {@link groovy.util.AntBuilder} instance.
    */
   @SuppressWarnings("JavadocReference")
-  ANT_BUILDER
+  ANT_BUILDER,
+
+  /**
+   * Context value will be replaced by a helper to process items concurrently, with {@code collectParallel} and
+   * {@code eachParallel} methods.  Sized by the {@link ScriptExecutor#PARALLELISM} option; runs on the
+   * {@link ScriptExecutor#PARALLEL_EXECUTOR} option if given.
+   *
+   * @since 2.2.0
+   */
+  PARALLEL
 }
@@ -15,6 +15,7 @@
  */
 package org.codehaus.gmaven.adapter;
 
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -29,6 +30,79 @@ import javax.annotation.Nullable;
 @SuppressWarnings("JavadocReference")
 public interface ScriptExecutor
 {
+  /**
+   * Option; {@link java.io.File} directory of the persistent compiled class cache.  Cache is disabled if unset.
+   *
+   * @since 2.2.0
+   */
+  String CLASS_CACHE_DIRECTORY = "classCacheDirectory";
+
+  /**
+   * Option; {@link Long} maximum size in bytes of the persistent compiled class cache.
+   *
+   * @since 2.2.0
+   */
+  String CLASS_CACHE_MAX_SIZE = "classCacheMaxSize";
+
+  /**
+   * Option; {@link Boolean} compile with invokedynamic support.
+   *
+   * @since 2.2.0
+   */
+  String COMPILE_INDY = "indy";
+
+  /**
+   * Option; {@link Boolean} compile all classes as if annotated with {@code groovy.transform.CompileStatic}.
+   *
+   * @since 2.2.0
+   */
+  String COMPILE_STATIC = "compileStatic";
+
+  /**
+   * Option; {@link String} target bytecode level, ie. {@code 1.7}.
+   *
+   * @since 2.2.0
+   */
+  String TARGET_BYTECODE = "targetBytecode";
+
+  /**
+   * Option; {@link Boolean} false to strip debug and line number information from compiled classes.
+   *
+   * @since 2.2.0
+   */
+  String DEBUG_INFO = "debugInfo";
+
+  /**
+   * Option; {@link PhaseRecorder} to record binding, compilation and execution phases.
+   *
+   * @since 2.2.0
+   */
+  String PHASE_RECORDER = "phaseRecorder";
+
+  /**
+   * Option; {@link Integer} number of threads of the {@link MagicContext#PARALLEL} helper.  Defaults to the number of
+   * available processors.
+   *
+   * @since 2.2.0
+   */
+  String PARALLELISM = "parallelism";
+
+  /**
+   * Option; {@link java.util.concurrent.ExecutorService} of {@link #PARALLELISM} threads shared by the
+   * {@link MagicContext#PARALLEL} helpers of all executions; not shut down by them.  Each helper uses its own pool if
+   * unset.
+   *
+   * @since 2.2.0
+   */
+  String PARALLEL_EXECUTOR = "parallelExecutor";
+
+  /**
+   * Option; {@link ScriptEventListener} to receive binding and compilation events.
+   *
+   * @since 2.2.0
+   */
+  String EVENT_LISTENER = "eventListener";
+
   @Nullable
   Object execute(ClassSource classSource,
                  ClassLoader classLoader,
@@ -36,4 +110,21 @@ public interface ScriptExecutor
                  Map<String, Object> context,
                  @Nullable Map<String, Object> options)
       throws Exception;
+
+  /**
+   * Execute scripts in order, sharing one class-loader and binding.
+   *
+   * Classes of each script are visible to the scripts after it.
+   *
+   * @return The result of the last script.
+   *
+   * @since 2.2.0
+   */
+  @Nullable
+  Object execute(List<ClassSource> classSources,
+                 ClassLoader classLoader,
+                 ResourceLoader resourceLoader,
+                 Map<String, Object> context,
+                 @Nullable Map<String, Object> options)
+      throws Exception;
 }
\ No newline at end of file
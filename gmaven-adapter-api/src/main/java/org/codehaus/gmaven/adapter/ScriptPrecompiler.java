@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Provides the ability to compile scriptpath sources in the background, ahead of script execution.
+ *
+ * @since 2.2.0
+ */
+public interface ScriptPrecompiler
+{
+  interface PrecompileHandle
+  {
+    /**
+     * Class-loader providing precompiled classes; waits for pending compilation of scriptpath classes as needed.
+     */
+    ClassLoader getClassLoader();
+
+    void await() throws InterruptedException;
+
+    void cancel();
+  }
+
+  PrecompileHandle precompile(ClassLoader classLoader,
+                              List<File> scriptpath,
+                              @Nullable Map<String, Object> options)
+      throws Exception;
+}
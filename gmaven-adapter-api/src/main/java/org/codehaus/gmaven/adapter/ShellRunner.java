@@ -29,6 +29,41 @@ import javax.annotation.Nullable;
 @SuppressWarnings("JavadocReference")
 public interface ShellRunner
 {
+  /**
+   * Option; {@link CompletionIndex} of additional classes offered by import and class-name completion.
+   *
+   * @since 2.2.0
+   */
+  String COMPLETION_INDEX = "completionIndex";
+
+  /**
+   * Handle of a shell initialized in the background.
+   *
+   * @since 2.2.0
+   */
+  interface ShellHandle
+  {
+    /**
+     * Run the shell with the given context; waits for pending initialization as needed.
+     */
+    void run(Map<String, Object> context) throws Exception;
+
+    /**
+     * Discard the shell unless run.
+     */
+    void cancel();
+  }
+
+  /**
+   * Start initializing a shell in the background, while the caller prepares the context.
+   *
+   * @since 2.2.0
+   */
+  ShellHandle prepare(ClassLoader classLoader,
+                      ResourceLoader resourceLoader,
+                      @Nullable Map<String, Object> options)
+      throws Exception;
+
   void run(ClassLoader classLoader,
            ResourceLoader resourceLoader,
            Map<String, Object> context,
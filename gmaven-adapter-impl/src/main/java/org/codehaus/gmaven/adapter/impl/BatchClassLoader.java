@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import groovy.lang.GroovyClassLoader;
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link GroovyClassLoader} shared by a batch of scripts; classes of each executed script are visible to later scripts.
+ *
+ * @since 2.2.0
+ */
+public class BatchClassLoader
+    extends GroovyClassLoader
+{
+  /**
+   * Fingerprint of the registered classes; null if none.
+   */
+  private String fingerprint;
+
+  public BatchClassLoader(final ClassLoader parent, final CompilerConfiguration cc) {
+    super(parent, cc);
+  }
+
+  /**
+   * Fingerprint of the registered classes, which later scripts may be compiled against; null if none.
+   */
+  @Nullable
+  public synchronized String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * Register the classes of a script defined by {@link CompiledScript#define(GroovyClassLoader)}.
+   */
+  public synchronized void register(final CompiledScript script, final Class<?> mainClass)
+      throws ClassNotFoundException
+  {
+    checkNotNull(script);
+    checkNotNull(mainClass);
+
+    Hasher hasher = Hashing.sha1().newHasher();
+    if (fingerprint != null) {
+      hasher.putString(fingerprint, Charsets.UTF_8);
+    }
+
+    ClassLoader definingLoader = mainClass.getClassLoader();
+    for (Map.Entry<String, byte[]> entry : script.getClasses().entrySet()) {
+      setClassCacheEntry(definingLoader.loadClass(entry.getKey()));
+      hasher.putString(entry.getKey(), Charsets.UTF_8).putBytes(entry.getValue());
+    }
+    fingerprint = hasher.hash().toString();
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import groovy.transform.CompileStatic;
+import org.codehaus.groovy.control.customizers.ASTTransformationCustomizer;
+
+/**
+ * Applies {@link CompileStatic} to all compiled classes.
+ *
+ * Fingerprinted by its type, so compilations using it may still be shared and cached.
+ *
+ * @since 2.2.0
+ */
+public class CompileStaticCustomizer
+    extends ASTTransformationCustomizer
+    implements FingerprintedCustomizer
+{
+  public CompileStaticCustomizer() {
+    super(CompileStatic.class);
+  }
+
+  /**
+   * Configuration is fixed by the type.
+   */
+  @Override
+  public String getFingerprint() {
+    return getClass().getName();
+  }
+}
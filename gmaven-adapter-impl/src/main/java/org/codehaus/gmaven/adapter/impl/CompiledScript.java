@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyClassLoader.InnerLoader;
+import groovy.lang.GroovyCodeSource;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.tools.GroovyClass;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compiled script; the generated class bytes of a script and any classes it declares.
+ *
+ * @since 2.2.0
+ */
+public class CompiledScript
+{
+  private static final int MAGIC = 0x474d4353; // GMCS
+
+  private final String mainClassName;
+
+  private final Map<String, byte[]> classes;
+
+  private final boolean standalone;
+
+  private CompiledScript(final String mainClassName, final Map<String, byte[]> classes, final boolean standalone) {
+    this.mainClassName = checkNotNull(mainClassName);
+    this.classes = Collections.unmodifiableMap(checkNotNull(classes));
+    this.standalone = standalone;
+  }
+
+  public String getMainClassName() {
+    return mainClassName;
+  }
+
+  public Map<String, byte[]> getClasses() {
+    return classes;
+  }
+
+  /**
+   * True if the script compiled without pulling in any additional sources via the class-loader.
+   *
+   * Only standalone scripts can safely be reused independently of the resource-loader they were compiled with.
+   */
+  public boolean isStandalone() {
+    return standalone;
+  }
+
+  /**
+   * Compile the given code source.
+   */
+  public static CompiledScript compile(final GroovyCodeSource codeSource,
+                                       final CompilerConfiguration cc,
+                                       final GroovyClassLoader gcl)
+  {
+    checkNotNull(codeSource);
+    checkNotNull(cc);
+    checkNotNull(gcl);
+
+    CompilationUnit unit = new CompilationUnit(cc, null, gcl);
+
+    // same source-unit selection as GroovyClassLoader.doParseClass()
+    SourceUnit source;
+    if (codeSource.getFile() != null) {
+      source = unit.addSource(codeSource.getFile());
+    }
+    else if (codeSource.getURL() != null) {
+      source = unit.addSource(codeSource.getURL());
+    }
+    else {
+      source = unit.addSource(codeSource.getName(), codeSource.getScriptText());
+    }
+
+    unit.compile(Phases.CLASS_GENERATION);
+
+    Map<String, byte[]> classes = collectClasses(unit);
+
+    // main class is the first class of the main module; same as GroovyClassLoader.ClassCollector
+    String mainClassName = source.getAST().getClasses().get(0).getName();
+
+    // resolving types from the resource-loader adds more source-units to the compilation
+    int sources = 0;
+    for (Iterator<SourceUnit> iter = unit.iterator(); iter.hasNext(); iter.next()) {
+      sources++;
+    }
+
+    return new CompiledScript(mainClassName, classes, sources == 1);
+  }
+
+  /**
+   * Collect generated classes of a compilation, stripping debug information if {@link DebugInfoStripper enabled}.
+   */
+  static Map<String, byte[]> collectClasses(final CompilationUnit unit) {
+    boolean strip = DebugInfoStripper.isEnabled(unit.getConfiguration());
+
+    Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+    for (Object item : unit.getClasses()) {
+      GroovyClass type = (GroovyClass) item;
+      byte[] bytes = type.getBytes();
+      if (strip) {
+        bytes = DebugInfoStripper.strip(bytes);
+      }
+      classes.put(type.getName(), bytes);
+    }
+    return classes;
+  }
+
+  /**
+   * Fingerprint the compiler configuration settings which influence generated bytecode; null if the configuration has
+   * customizers which are not {@link FingerprintedCustomizer fingerprinted}, and compilations must not be shared.
+   *
+   * Only settings available on all supported Groovy versions may be used; this is part of every compilation key.
+   */
+  @Nullable
+  public static String fingerprint(final CompilerConfiguration cc) {
+    StringBuilder buff = new StringBuilder()
+        .append(cc.getTargetBytecode()).append('|')
+        .append(cc.getSourceEncoding()).append('|')
+        .append(cc.getScriptBaseClass()).append('|')
+        .append(new TreeMap<String, Boolean>(cc.getOptimizationOptions())).append('|')
+        .append(cc.getDisabledGlobalASTTransformations()).append('|');
+
+    for (CompilationCustomizer customizer : cc.getCompilationCustomizers()) {
+      if (!(customizer instanceof FingerprintedCustomizer)) {
+        return null;
+      }
+      buff.append(((FingerprintedCustomizer) customizer).getFingerprint()).append(',');
+    }
+
+    return buff.toString();
+  }
+
+  /**
+   * Define classes in a new class-loader, child of the given class-loader, and return the main class.
+   *
+   * Classes are defined by an {@link InnerLoader} of the given class-loader, as {@link groovy.lang.GroovyShell} does,
+   * so scripts may still add to its class-path and parse further classes through their own class-loader.
+   */
+  public Class<?> define(final GroovyClassLoader parent) throws ClassNotFoundException {
+    checkNotNull(parent);
+    return new DefiningClassLoader(parent, classes).loadClass(mainClassName);
+  }
+
+  /**
+   * Class-loader which defines the compiled classes on demand, before delegating to its parent.
+   */
+  private static class DefiningClassLoader
+      extends InnerLoader
+  {
+    private final Map<String, byte[]> classes;
+
+    private DefiningClassLoader(final GroovyClassLoader parent, final Map<String, byte[]> classes) {
+      super(parent);
+      this.classes = classes;
+    }
+
+    @Override
+    public Class loadClass(final String name,
+                           final boolean lookupScriptFiles,
+                           final boolean preferClassOverScript,
+                           final boolean resolve)
+        throws ClassNotFoundException
+    {
+      byte[] bytes = classes.get(name);
+      if (bytes == null) {
+        return super.loadClass(name, lookupScriptFiles, preferClassOverScript, resolve);
+      }
+
+      synchronized (this) {
+        Class<?> type = findLoadedClass(name);
+        if (type == null) {
+          type = defineClass(name, bytes, 0, bytes.length);
+        }
+        if (resolve) {
+          resolveClass(type);
+        }
+        return type;
+      }
+    }
+  }
+
+  //
+  // Serialization
+  //
+
+  public void write(final OutputStream output) throws IOException {
+    checkNotNull(output);
+
+    DataOutputStream out = new DataOutputStream(output);
+    out.writeInt(MAGIC);
+    out.writeUTF(mainClassName);
+    out.writeInt(classes.size());
+    for (Entry<String, byte[]> entry : classes.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue().length);
+      out.write(entry.getValue());
+    }
+    out.flush();
+  }
+
+  /**
+   * Read a compiled script; only standalone scripts are ever written.
+   */
+  public static CompiledScript read(final InputStream input) throws IOException {
+    checkNotNull(input);
+
+    DataInputStream in = new DataInputStream(input);
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Invalid compiled script");
+    }
+    String mainClassName = in.readUTF();
+    int count = in.readInt();
+    Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>(count);
+    for (int i = 0; i < count; i++) {
+      String name = in.readUTF();
+      byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      classes.put(name, bytes);
+    }
+    return new CompiledScript(mainClassName, classes, true);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "mainClassName='" + mainClassName + '\'' +
+        ", classes=" + classes.keySet() +
+        ", standalone=" + standalone +
+        '}';
+  }
+}
@@ -17,10 +17,21 @@ package org.codehaus.gmaven.adapter.impl;
 
 import java.util.EventObject;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
+import javax.swing.SwingUtilities;
 
-import groovy.lang.Binding;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import groovy.lang.Closure;
 import groovy.lang.GroovyClassLoader;
 import groovy.ui.Console;
 import org.codehaus.gmaven.adapter.ConsoleWindow;
@@ -62,14 +73,43 @@ public class ConsoleWindowImpl
     log.trace("Opening; class-loader: {}, resource-loader: {}, context: {}",
         classLoader, resourceLoader, context);
 
-    final GroovyClassLoader gcl = runtime.createGroovyClassLoader(classLoader, resourceLoader);
-    Binding binding = runtime.createBinding(context);
+    Environment environment = new Environment()
+    {
+      @Override
+      public ClassLoader getClassLoader() {
+        return classLoader;
+      }
+
+      @Override
+      public ResourceLoader getResourceLoader() {
+        return resourceLoader;
+      }
+
+      @Override
+      public Map<String, Object> getContext() {
+        return context;
+      }
+    };
+    return open(Futures.immediateFuture(environment), options);
+  }
+
+  @Override
+  public WindowHandle open(final Future<Environment> environment,
+                           final @Nullable Map<String, Object> options)
+      throws Exception
+  {
+    checkNotNull(environment);
+
+    log.trace("Opening; environment: {}", environment);
+
+    final LazyBinding binding = new LazyBinding();
 
     // FIXME: Sort out how we can avoid IDEA from thinking a sub-class of this needs to have additional overrides
     // FIXME: Its complaining about the synthetic methods which are dynamically added to GroovyObject instances
     // FIXME: Perhaps we can install exit lock notification via an event listener instead?
 
-    final Console console = new Console(gcl, binding)
+    // scripts use the class-loader of the environment once available; see bind()
+    final Console console = new Console(getClass().getClassLoader(), binding)
     {
       public void exit(final EventObject event) {
         try {
@@ -87,8 +127,37 @@ public class ConsoleWindowImpl
       configureOptions(console, options);
     }
 
+    ListeningExecutorService executor = MoreExecutors.listeningDecorator(
+        Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("gmaven-console-%d")
+            .setDaemon(true)
+            .build()));
+    final ListenableFuture<GroovyClassLoader> ready;
+    try {
+      ready = executor.submit(new Callable<GroovyClassLoader>()
+      {
+        @Override
+        public GroovyClassLoader call() throws Exception {
+          return bind(console, binding, environment.get(), options);
+        }
+      });
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    console.setBeforeExecution(new Closure(this)
+    {
+      @SuppressWarnings("unused")
+      public Object doCall() throws Exception {
+        awaitReady(ready);
+        return null;
+      }
+    });
+
     log.trace("Opening");
     console.run();
+    showLoadingState(console, ready);
 
     return new WindowHandle()
     {
@@ -109,11 +178,95 @@ public class ConsoleWindowImpl
       }
 
       private void cleanup() {
-        gcl.clearCache();
+        binding.close();
+        if (ready.isDone() && !ready.isCancelled()) {
+          try {
+            ready.get().clearCache();
+          }
+          catch (Exception e) {
+            log.trace("Environment not bound", e);
+          }
+        }
+        else {
+          ready.cancel(true);
+        }
       }
     };
   }
 
+  /**
+   * Bind the environment; later scripts run with its class-loader and context.
+   */
+  private GroovyClassLoader bind(final Console console,
+                                 final LazyBinding binding,
+                                 final Environment environment,
+                                 final @Nullable Map<String, Object> options)
+  {
+    log.trace("Binding; class-loader: {}, resource-loader: {}, context: {}",
+        environment.getClassLoader(), environment.getResourceLoader(), environment.getContext());
+
+    GroovyClassLoader gcl = runtime.createGroovyClassLoader(environment.getClassLoader(),
+        environment.getResourceLoader());
+    runtime.populateBinding(binding, environment.getContext(), options);
+    console.newScript(gcl, binding);
+    return gcl;
+  }
+
+  /**
+   * Wait for the environment before running a script.
+   */
+  private static void awaitReady(final Future<GroovyClassLoader> ready) throws Exception {
+    try {
+      ready.get();
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), Exception.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Show a status message while the environment is prepared.
+   */
+  private static void showLoadingState(final Console console, final ListenableFuture<GroovyClassLoader> ready) {
+    final boolean[] loading = new boolean[1];
+    SwingUtilities.invokeLater(new Runnable()
+    {
+      @Override
+      public void run() {
+        if (!ready.isDone()) {
+          loading[0] = true;
+          console.showMessage("Loading classpath...");
+        }
+      }
+    });
+    ready.addListener(new Runnable()
+    {
+      @Override
+      public void run() {
+        SwingUtilities.invokeLater(new Runnable()
+        {
+          @Override
+          public void run() {
+            if (loading[0]) {
+              console.showMessage(isFailed(ready) ? "Failed to load classpath; see the build output" : "Ready");
+            }
+          }
+        });
+      }
+    }, MoreExecutors.sameThreadExecutor());
+  }
+
+  private static boolean isFailed(final Future<?> future) {
+    try {
+      future.get();
+      return false;
+    }
+    catch (Exception e) {
+      return true;
+    }
+  }
+
   private void configureOptions(final Console console, final Map<String, Object> options) {
     // TODO
   }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import groovyjarjarasm.asm.ClassReader;
+import groovyjarjarasm.asm.ClassWriter;
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Strips debug information, including source file and line numbers, from generated classes.
+ *
+ * Applied when classes are collected from a compilation, as the compiler bytecode post-processor is only available
+ * as of Groovy 2.4.
+ *
+ * @since 2.2.0
+ */
+public class DebugInfoStripper
+{
+  /**
+   * Optimization option which enables stripping; not known to, and ignored by, the compiler itself.
+   */
+  public static final String OPTION = "gmaven.stripDebugInfo";
+
+  private DebugInfoStripper() {
+    // empty
+  }
+
+  /**
+   * Enable stripping for classes compiled with the given configuration.
+   */
+  public static void enable(final CompilerConfiguration cc) {
+    checkNotNull(cc);
+    cc.getOptimizationOptions().put(OPTION, true);
+  }
+
+  /**
+   * True if stripping is enabled for classes compiled with the given configuration.
+   */
+  public static boolean isEnabled(final CompilerConfiguration cc) {
+    checkNotNull(cc);
+    return Boolean.TRUE.equals(cc.getOptimizationOptions().get(OPTION));
+  }
+
+  public static byte[] strip(final byte[] original) {
+    checkNotNull(original);
+    ClassWriter writer = new ClassWriter(0);
+    new ClassReader(original).accept(writer, ClassReader.SKIP_DEBUG);
+    return writer.toByteArray();
+  }
+}
@@ -15,6 +15,7 @@
  */
 package org.codehaus.gmaven.adapter.impl;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -22,9 +23,21 @@ import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
-import groovy.lang.Binding;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import groovy.lang.Closure;
 import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyCodeSource;
@@ -36,13 +49,18 @@ import org.codehaus.gmaven.adapter.ClassSource.Inline;
 import org.codehaus.gmaven.adapter.ClosureTarget;
 import org.codehaus.gmaven.adapter.ConsoleWindow;
 import org.codehaus.gmaven.adapter.GroovyRuntime;
+import org.codehaus.gmaven.adapter.LazyValue;
 import org.codehaus.gmaven.adapter.MagicContext;
 import org.codehaus.gmaven.adapter.ResourceLoader;
+import org.codehaus.gmaven.adapter.ScriptEventListener;
 import org.codehaus.gmaven.adapter.ScriptExecutor;
+import org.codehaus.gmaven.adapter.ScriptPrecompiler;
 import org.codehaus.gmaven.adapter.ShellRunner;
+import org.codehaus.groovy.control.CompilerConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -55,6 +73,12 @@ public class GroovyRuntimeImpl
 {
   private final Logger log = LoggerFactory.getLogger(getClass());
 
+  /**
+   * Compiled scripts by parent class-loader and source; weak keys so non-pooled realms are not retained.
+   */
+  private final Cache<ClassLoader, ConcurrentMap<String, FutureTask<CompiledScript>>> compiledScripts =
+      CacheBuilder.newBuilder().weakKeys().build();
+
   @Override
   public ScriptExecutor createScriptExecutor() {
     return new ScriptExecutorImpl(this);
@@ -70,9 +94,14 @@ public class GroovyRuntimeImpl
     return new ShellRunnerImpl(this);
   }
 
+  @Override
+  public ScriptPrecompiler createScriptPrecompiler() {
+    return new ScriptPrecompilerImpl(this);
+  }
+
   @Override
   public void cleanup() {
-    // nothing atm
+    compiledScripts.invalidateAll();
   }
 
   //
@@ -83,11 +112,45 @@ public class GroovyRuntimeImpl
    * Create a {@link GroovyClassLoader} from given {@link ClassLoader} and {@link ResourceLoader}.
    */
   public GroovyClassLoader createGroovyClassLoader(final ClassLoader classLoader, final ResourceLoader resourceLoader) {
+    return createGroovyClassLoader(classLoader, resourceLoader, CompilerConfiguration.DEFAULT);
+  }
+
+  /**
+   * Create a {@link GroovyClassLoader} from given {@link ClassLoader} and {@link ResourceLoader}; sources loaded from
+   * the resource-loader are compiled with given configuration.
+   *
+   * @since 2.2.0
+   */
+  public GroovyClassLoader createGroovyClassLoader(final ClassLoader classLoader,
+                                                   final ResourceLoader resourceLoader,
+                                                   final CompilerConfiguration cc)
+  {
+    checkNotNull(cc);
     return AccessController.doPrivileged(new PrivilegedAction<GroovyClassLoader>()
     {
       @Override
       public GroovyClassLoader run() {
-        GroovyClassLoader gcl = new GroovyClassLoader(classLoader);
+        GroovyClassLoader gcl = new GroovyClassLoader(classLoader, cc);
+        gcl.setResourceLoader(createGroovyResourceLoader(resourceLoader));
+        return gcl;
+      }
+    });
+  }
+
+  /**
+   * Create a {@link BatchClassLoader} from given {@link ClassLoader} and {@link ResourceLoader}; sources loaded from
+   * the resource-loader are compiled with given configuration.
+   */
+  public BatchClassLoader createBatchClassLoader(final ClassLoader classLoader,
+                                                 final ResourceLoader resourceLoader,
+                                                 final CompilerConfiguration cc)
+  {
+    checkNotNull(cc);
+    return AccessController.doPrivileged(new PrivilegedAction<BatchClassLoader>()
+    {
+      @Override
+      public BatchClassLoader run() {
+        BatchClassLoader gcl = new BatchClassLoader(classLoader, cc);
         gcl.setResourceLoader(createGroovyResourceLoader(resourceLoader));
         return gcl;
       }
@@ -129,6 +192,171 @@ public class GroovyRuntimeImpl
     throw new Error("Unable to create GroovyCodeSource from: " + source);
   }
 
+  /**
+   * Create compiler configuration for given options.
+   */
+  public CompilerConfiguration createCompilerConfiguration(final @Nullable Map<String, Object> options) {
+    CompilerConfiguration cc = new CompilerConfiguration();
+    if (options != null) {
+      configureCompiler(cc, options);
+    }
+    return cc;
+  }
+
+  private void configureCompiler(final CompilerConfiguration cc, final Map<String, Object> options) {
+    String targetBytecode = (String) options.get(ScriptExecutor.TARGET_BYTECODE);
+    if (targetBytecode != null) {
+      cc.setTargetBytecode(targetBytecode);
+      // unsupported levels are silently ignored by the compiler
+      checkArgument(targetBytecode.equals(cc.getTargetBytecode()), "Unsupported target bytecode: %s", targetBytecode);
+    }
+
+    if (Boolean.TRUE.equals(options.get(ScriptExecutor.COMPILE_INDY))) {
+      cc.getOptimizationOptions().put(CompilerConfiguration.INVOKEDYNAMIC, true);
+    }
+
+    if (Boolean.TRUE.equals(options.get(ScriptExecutor.COMPILE_STATIC))) {
+      cc.addCompilationCustomizers(new CompileStaticCustomizer());
+    }
+
+    if (Boolean.FALSE.equals(options.get(ScriptExecutor.DEBUG_INFO))) {
+      DebugInfoStripper.enable(cc);
+    }
+
+    log.debug("Compiler configuration: {}", CompiledScript.fingerprint(cc));
+  }
+
+  /**
+   * Compile a script; identical sources are compiled once for each parent class-loader.
+   *
+   * File and url sources are only identical if they also have the same name.  Inline sources are identical by their
+   * content alone.
+   *
+   * Concurrent callers compiling the same source wait for a single compilation.  Scripts which pulled in additional
+   * sources from the resource-loader are not retained, as those depend on the resource-loader of the caller.  Neither
+   * are scripts compiled with customizers which are not {@link FingerprintedCustomizer fingerprinted}.
+   */
+  public CompiledScript compileScript(final GroovyCodeSource codeSource,
+                                      final CompilerConfiguration cc,
+                                      final GroovyClassLoader gcl,
+                                      final @Nullable ScriptClassCache classCache)
+      throws Exception
+  {
+    checkNotNull(codeSource);
+    checkNotNull(cc);
+    checkNotNull(gcl);
+
+    String text = codeSource.getScriptText();
+    String configuration = CompiledScript.fingerprint(cc);
+    if (text == null || configuration == null) {
+      return CompiledScript.compile(codeSource, cc, gcl);
+    }
+
+    Hasher hasher = Hashing.sha1().newHasher()
+        .putBytes(text.getBytes(Charsets.UTF_8))
+        .putBytes(configuration.getBytes(Charsets.UTF_8));
+
+    // class and source file names are derived from the name of file and url sources; inline names are generated
+    if (codeSource.getFile() != null || codeSource.getURL() != null) {
+      hasher.putBytes(codeSource.getName().getBytes(Charsets.UTF_8));
+    }
+
+    // classes of earlier scripts in a batch may be referenced
+    if (gcl instanceof BatchClassLoader && ((BatchClassLoader) gcl).getFingerprint() != null) {
+      hasher.putBytes(((BatchClassLoader) gcl).getFingerprint().getBytes(Charsets.UTF_8));
+    }
+    String key = hasher.hash().toString();
+
+    ConcurrentMap<String, FutureTask<CompiledScript>> scripts = compiledScripts.get(gcl.getParent(),
+        new Callable<ConcurrentMap<String, FutureTask<CompiledScript>>>()
+        {
+          @Override
+          public ConcurrentMap<String, FutureTask<CompiledScript>> call() {
+            return new ConcurrentHashMap<String, FutureTask<CompiledScript>>();
+          }
+        });
+
+    Callable<CompiledScript> compiler = new Callable<CompiledScript>()
+    {
+      @Override
+      public CompiledScript call() throws Exception {
+        return loadOrCompileScript(codeSource, cc, gcl, classCache);
+      }
+    };
+
+    boolean owner = false;
+    FutureTask<CompiledScript> task = scripts.get(key);
+    if (task == null) {
+      FutureTask<CompiledScript> created = new FutureTask<CompiledScript>(compiler);
+      task = scripts.putIfAbsent(key, created);
+      if (task == null) {
+        task = created;
+        owner = true;
+        task.run();
+      }
+    }
+
+    CompiledScript script;
+    try {
+      script = task.get();
+    }
+    catch (ExecutionException e) {
+      scripts.remove(key, task);
+      Throwables.propagateIfPossible(e.getCause(), Exception.class);
+      throw Throwables.propagate(e.getCause());
+    }
+
+    if (script.isStandalone()) {
+      if (!owner) {
+        log.debug("Using compiled classes for: {}", codeSource.getName());
+      }
+      return script;
+    }
+
+    if (owner) {
+      scripts.remove(key, task);
+      return script;
+    }
+
+    // compiled by another caller with sources from its resource-loader
+    return compiler.call();
+  }
+
+  /**
+   * Load script from the persistent class cache if configured, else compile.
+   */
+  private CompiledScript loadOrCompileScript(final GroovyCodeSource codeSource,
+                                             final CompilerConfiguration cc,
+                                             final GroovyClassLoader gcl,
+                                             final @Nullable ScriptClassCache classCache)
+  {
+    if (classCache == null) {
+      return CompiledScript.compile(codeSource, cc, gcl);
+    }
+
+    String key = classCache.key(codeSource, cc, gcl);
+    if (key == null) {
+      log.debug("Source can not be cached: {}", codeSource.getName());
+      return CompiledScript.compile(codeSource, cc, gcl);
+    }
+
+    CompiledScript script = classCache.get(key);
+    if (script != null) {
+      log.debug("Using cached classes for: {}", codeSource.getName());
+      return script;
+    }
+
+    script = CompiledScript.compile(codeSource, cc, gcl);
+    if (script.isStandalone()) {
+      classCache.put(key, script);
+    }
+    else {
+      // classes compiled from the scriptpath are not part of the key; never cache those
+      log.debug("Not caching classes which depend on additional sources: {}", codeSource.getName());
+    }
+    return script;
+  }
+
   /**
    * Creates a {@link Closure} from a {@link ClosureTarget}.
    */
@@ -159,6 +387,15 @@ public class GroovyRuntimeImpl
    * Create an object for a {@link MagicContext} entry.
    */
   public Object createMagicContextValue(final MagicContext magic) {
+    return createMagicContextValue(magic, null);
+  }
+
+  /**
+   * Create an object for a {@link MagicContext} entry, configured by the given executor options.
+   *
+   * @since 2.2.0
+   */
+  public Object createMagicContextValue(final MagicContext magic, final @Nullable Map<String, Object> options) {
     checkNotNull(magic);
 
     switch (magic) {
@@ -174,33 +411,110 @@ public class GroovyRuntimeImpl
         }
         return ant;
       }
+
+      case PARALLEL: {
+        Integer parallelism = options != null ? (Integer) options.get(ScriptExecutor.PARALLELISM) : null;
+        if (parallelism == null || parallelism < 1) {
+          parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        ExecutorService executor = options != null
+            ? (ExecutorService) options.get(ScriptExecutor.PARALLEL_EXECUTOR)
+            : null;
+        if (executor != null) {
+          return new ParallelHelper(executor, parallelism);
+        }
+        return new ParallelHelper(parallelism);
+      }
     }
 
     throw new Error("Unsupported magic context: " + magic);
   }
 
   /**
-   * Create script binding, handling conversion of {@link ClosureTarget} and {@link MagicContext} entries.
+   * Create script binding, handling conversion of {@link ClosureTarget}, {@link MagicContext} and {@link LazyValue}
+   * entries.  Magic context and lazy values are resolved when the script first reads them.
+   */
+  public LazyBinding createBinding(final Map<String, Object> context) {
+    return createBinding(context, null);
+  }
+
+  /**
+   * Create script binding, configuring {@link MagicContext} values by the given executor options.
+   *
+   * Magic context values which hold resources are released when the binding is {@link LazyBinding#close() closed}.
+   *
+   * @since 2.2.0
+   */
+  public LazyBinding createBinding(final Map<String, Object> context, final @Nullable Map<String, Object> options) {
+    LazyBinding binding = new LazyBinding();
+    populateBinding(binding, context, options);
+    return binding;
+  }
+
+  /**
+   * Set the variables of an existing binding from the given context; same conversions as
+   * {@link #createBinding(Map, Map)}.
+   *
+   * @since 2.2.0
    */
-  public Binding createBinding(final Map<String, Object> context) {
-    Binding binding = new Binding();
+  public void populateBinding(final LazyBinding binding,
+                              final Map<String, Object> context,
+                              final @Nullable Map<String, Object> options)
+  {
+    checkNotNull(binding);
+    checkNotNull(context);
 
+    int lazyVariables = 0;
     log.debug("Binding:");
     for (Entry<String, Object> entry : context.entrySet()) {
       String key = entry.getKey();
-      Object value = entry.getValue();
+      final Object value = entry.getValue();
 
-      if (value instanceof ClosureTarget) {
-        value = createClosure(this, (ClosureTarget) value);
+      if (value instanceof MagicContext) {
+        log.debug("  {}=<lazy {}>", key, value);
+        lazyVariables++;
+        binding.setLazyVariable(key, new LazyValue()
+        {
+          @Override
+          public Object get() {
+            Object magic = createMagicContextValue((MagicContext) value, options);
+            if (magic instanceof Closeable) {
+              binding.closeOnCleanup((Closeable) magic);
+            }
+            return magic;
+          }
+        });
+      }
+      else if (value instanceof LazyValue) {
+        log.debug("  {}=<lazy>", key);
+        lazyVariables++;
+        binding.setLazyVariable(key, new LazyValue()
+        {
+          @Override
+          public Object get() throws Exception {
+            return createBindingValue(((LazyValue) value).get());
+          }
+        });
       }
-      else if (value instanceof MagicContext) {
-        value = createMagicContextValue((MagicContext) value);
+      else {
+        Object converted = createBindingValue(value);
+        log.debug("  {}={}", key, converted);
+        binding.setVariable(key, converted);
       }
+    }
 
-      log.debug("  {}={}", key, value);
-      binding.setVariable(entry.getKey(), value);
+    ScriptEventListener listener =
+        options != null ? (ScriptEventListener) options.get(ScriptExecutor.EVENT_LISTENER) : null;
+    if (listener != null) {
+      listener.bindingCreated(context.size(), lazyVariables);
     }
+  }
 
-    return binding;
+  @Nullable
+  private Object createBindingValue(final @Nullable Object value) {
+    if (value instanceof ClosureTarget) {
+      return createClosure(this, (ClosureTarget) value);
+    }
+    return value;
   }
 }
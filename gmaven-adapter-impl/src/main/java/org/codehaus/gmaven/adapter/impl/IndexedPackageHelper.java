@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nullable;
+
+import org.codehaus.gmaven.adapter.CompletionIndex;
+import org.codehaus.groovy.tools.shell.Groovysh;
+import org.codehaus.groovy.tools.shell.util.PackageHelper;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link PackageHelper} adding the contents of a {@link CompletionIndex} to those of the shell.
+ *
+ * @since 2.2.0
+ */
+public class IndexedPackageHelper
+    implements PackageHelper
+{
+  @Nullable
+  private final PackageHelper delegate;
+
+  private final CompletionIndex index;
+
+  public IndexedPackageHelper(final @Nullable PackageHelper delegate, final CompletionIndex index) {
+    this.delegate = delegate;
+    this.index = checkNotNull(index);
+  }
+
+  /**
+   * Add the contents of the index to the completion of the given shell.
+   */
+  public static void install(final Groovysh shell, final CompletionIndex index) {
+    checkNotNull(shell);
+    shell.setPackageHelper(new IndexedPackageHelper(shell.getPackageHelper(), index));
+  }
+
+  @Override
+  public Set<String> getContents(final String packageName) {
+    Set<String> contents = new TreeSet<String>(index.getContents(packageName));
+    if (delegate != null) {
+      Set<String> names = delegate.getContents(packageName);
+      if (names != null) {
+        contents.addAll(names);
+      }
+    }
+    return contents;
+  }
+}
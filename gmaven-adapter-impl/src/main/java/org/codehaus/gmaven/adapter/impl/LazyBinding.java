@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Throwables;
+import groovy.lang.Binding;
+import org.codehaus.gmaven.adapter.LazyValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Binding} which resolves {@link LazyValue} variables when they are first read.
+ *
+ * Resources registered with {@link #closeOnCleanup(Closeable)} are closed by {@link #close()}.
+ *
+ * @since 2.2.0
+ */
+public class LazyBinding
+    extends Binding
+    implements Closeable
+{
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final Map<String, LazyValue> pending = new HashMap<String, LazyValue>();
+
+  private final List<Closeable> closeables = new ArrayList<Closeable>();
+
+  /**
+   * Set a variable whose value is computed when first read.
+   */
+  public synchronized void setLazyVariable(final String name, final LazyValue value) {
+    checkNotNull(name);
+    checkNotNull(value);
+    super.setVariable(name, null);
+    pending.put(name, value);
+  }
+
+  private synchronized void resolve(final String name) {
+    LazyValue lazy = pending.remove(name);
+    if (lazy != null) {
+      Object value;
+      try {
+        value = lazy.get();
+      }
+      catch (Exception e) {
+        // allow another attempt
+        pending.put(name, lazy);
+        throw Throwables.propagate(e);
+      }
+      log.debug("Resolved: {}={}", name, value);
+      super.setVariable(name, value);
+    }
+  }
+
+  @Override
+  public Object getVariable(final String name) {
+    resolve(name);
+    return super.getVariable(name);
+  }
+
+  @Override
+  public synchronized void setVariable(final String name, final Object value) {
+    pending.remove(name);
+    super.setVariable(name, value);
+  }
+
+  /**
+   * Returns all variables; resolves any pending values.
+   */
+  @Override
+  @SuppressWarnings("rawtypes")
+  public synchronized Map getVariables() {
+    for (String name : pending.keySet().toArray(new String[pending.size()])) {
+      resolve(name);
+    }
+    return super.getVariables();
+  }
+
+  /**
+   * Register a resource to close when the binding is no longer used.
+   */
+  public synchronized void closeOnCleanup(final Closeable closeable) {
+    closeables.add(checkNotNull(closeable));
+  }
+
+  /**
+   * Close registered resources, in reverse order of registration.
+   */
+  @Override
+  public synchronized void close() {
+    for (int i = closeables.size() - 1; i >= 0; i--) {
+      Closeable closeable = closeables.get(i);
+      try {
+        closeable.close();
+      }
+      catch (Exception e) {
+        log.warn("Failed to close: {}", closeable, e);
+      }
+    }
+    closeables.clear();
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import groovy.lang.Closure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Helper for scripts to process items concurrently on a bounded pool of threads.
+ *
+ * Usage:
+ * <pre>
+ * def sizes = parallel.collectParallel(files) { file -> file.size() }
+ * parallel.eachParallel(modules) { module -> validate(module) }
+ * </pre>
+ *
+ * The pool is either owned by the helper, or shared by the helpers of all executions of a build.  Helpers called from
+ * a call of any helper process their items on the calling thread, so nested use can not exhaust the pool.  Calls of
+ * the helper are stopped when the execution completes.
+ *
+ * @since 2.2.0
+ */
+public class ParallelHelper
+    implements Closeable
+{
+  /**
+   * True on threads while they run a call of a helper.
+   */
+  private static final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>();
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final int parallelism;
+
+  private final ExecutorService executor;
+
+  /**
+   * True if the executor is owned by the helper, and shut down when closed.
+   */
+  private final boolean owned;
+
+  /**
+   * Calls which are not yet complete.
+   */
+  private final Set<Future<?>> pending = Collections.newSetFromMap(new ConcurrentHashMap<Future<?>, Boolean>());
+
+  private volatile boolean closed;
+
+  /**
+   * Helper with its own pool of the given number of threads.
+   */
+  public ParallelHelper(final int parallelism) {
+    this(createExecutor(parallelism), parallelism, true);
+  }
+
+  /**
+   * Helper using a shared executor of the given number of threads; the executor is not shut down when closed.
+   */
+  public ParallelHelper(final ExecutorService executor, final int parallelism) {
+    this(executor, parallelism, false);
+  }
+
+  private ParallelHelper(final ExecutorService executor, final int parallelism, final boolean owned) {
+    checkArgument(parallelism > 0, "Invalid parallelism: %s", parallelism);
+    this.executor = checkNotNull(executor);
+    this.parallelism = parallelism;
+    this.owned = owned;
+    log.debug("Parallelism: {}, shared: {}", parallelism, !owned);
+  }
+
+  private static ExecutorService createExecutor(final int parallelism) {
+    checkArgument(parallelism > 0, "Invalid parallelism: %s", parallelism);
+    return Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("gmaven-parallel-%d")
+        .setDaemon(true)
+        .build());
+  }
+
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Returns the results of calling the closure with each item, in order of the items.
+   *
+   * After a failure calls which have not started are skipped.  The first failure, in order of the items, is rethrown
+   * once all started calls complete.
+   */
+  public List<Object> collectParallel(final Iterable<?> items, final Closure closure) {
+    checkNotNull(items);
+    checkNotNull(closure);
+
+    List<Object> results = new ArrayList<Object>();
+    if (Boolean.TRUE.equals(worker.get())) {
+      for (Object item : items) {
+        results.add(closure.call(item));
+      }
+      return results;
+    }
+
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    for (final Object item : items) {
+      futures.add(execute(new Callable<Object>()
+      {
+        @Override
+        public Object call() throws Exception {
+          if (failed.get()) {
+            return null;
+          }
+          boolean completed = false;
+          try {
+            Object result = closure.call(item);
+            completed = true;
+            return result;
+          }
+          finally {
+            if (!completed) {
+              failed.set(true);
+            }
+          }
+        }
+      }));
+    }
+
+    Throwable failure = null;
+    for (Future<Object> future : futures) {
+      try {
+        Object result = future.get();
+        results.add(result);
+      }
+      catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+      catch (InterruptedException e) {
+        for (Future<Object> other : futures) {
+          other.cancel(true);
+        }
+        Thread.currentThread().interrupt();
+        throw Throwables.propagate(e);
+      }
+    }
+    if (failure != null) {
+      throw Throwables.propagate(failure);
+    }
+    return results;
+  }
+
+  public List<Object> collectParallel(final Object[] items, final Closure closure) {
+    return collectParallel(Arrays.asList(checkNotNull(items)), closure);
+  }
+
+  /**
+   * Call the closure with each item; the first failure is rethrown once all started calls complete.
+   */
+  public void eachParallel(final Iterable<?> items, final Closure closure) {
+    collectParallel(items, closure);
+  }
+
+  public void eachParallel(final Object[] items, final Closure closure) {
+    collectParallel(items, closure);
+  }
+
+  /**
+   * Call the closure on a thread of the pool.
+   */
+  public Future<Object> submit(final Closure closure) {
+    checkNotNull(closure);
+    return execute(new Callable<Object>()
+    {
+      @Override
+      public Object call() throws Exception {
+        return closure.call();
+      }
+    });
+  }
+
+  /**
+   * Execute a call on the pool, tracked until complete so it can be cancelled when closed.
+   */
+  private Future<Object> execute(final Callable<Object> callable) {
+    if (closed) {
+      throw new RejectedExecutionException("Closed");
+    }
+
+    FutureTask<Object> task = new FutureTask<Object>(new Callable<Object>()
+    {
+      @Override
+      public Object call() throws Exception {
+        worker.set(Boolean.TRUE);
+        try {
+          return callable.call();
+        }
+        finally {
+          worker.remove();
+        }
+      }
+    })
+    {
+      @Override
+      protected void done() {
+        pending.remove(this);
+      }
+    };
+
+    pending.add(task);
+    if (closed) {
+      // closed concurrently; may have missed this task
+      task.cancel(true);
+      throw new RejectedExecutionException("Closed");
+    }
+    try {
+      executor.execute(task);
+    }
+    catch (RejectedExecutionException e) {
+      pending.remove(task);
+      throw e;
+    }
+    return task;
+  }
+
+  /**
+   * Cancel all calls which are not complete; running calls are interrupted.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    int cancelled = 0;
+    for (Future<?> task : pending) {
+      if (task.cancel(true)) {
+        cancelled++;
+      }
+    }
+    if (owned) {
+      executor.shutdownNow();
+    }
+    log.debug("Closed; {} pending calls cancelled", cancelled);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "parallelism=" + parallelism +
+        ", shared=" + !owned +
+        '}';
+  }
+}
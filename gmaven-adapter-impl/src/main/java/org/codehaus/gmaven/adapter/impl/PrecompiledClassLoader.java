@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Class-loader providing classes precompiled from the scriptpath.
+ *
+ * Loading a class expected from the scriptpath waits until it has been compiled, or until precompilation completes.
+ * Classes which failed to precompile are not found, so Groovy falls back to compiling their sources.
+ *
+ * @since 2.2.0
+ */
+public class PrecompiledClassLoader
+    extends ClassLoader
+{
+  private final List<File> scriptpath;
+
+  private final Set<String> expected;
+
+  private final Object lock = new Object();
+
+  private final Map<String, byte[]> classes = new HashMap<String, byte[]>();
+
+  private boolean complete;
+
+  public PrecompiledClassLoader(final ClassLoader parent, final List<File> scriptpath, final Set<String> expected) {
+    super(checkNotNull(parent));
+    this.scriptpath = Collections.unmodifiableList(checkNotNull(scriptpath));
+    this.expected = checkNotNull(expected);
+  }
+
+  public List<File> getScriptpath() {
+    return scriptpath;
+  }
+
+  /**
+   * Add compiled classes; the first definition of a class wins.
+   */
+  void add(final Map<String, byte[]> compiled) {
+    synchronized (lock) {
+      for (Map.Entry<String, byte[]> entry : compiled.entrySet()) {
+        if (!classes.containsKey(entry.getKey())) {
+          classes.put(entry.getKey(), entry.getValue());
+        }
+      }
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Mark precompilation complete; no more classes will be added.
+   */
+  void complete() {
+    synchronized (lock) {
+      complete = true;
+      lock.notifyAll();
+    }
+  }
+
+  void await() throws InterruptedException {
+    synchronized (lock) {
+      while (!complete) {
+        lock.wait();
+      }
+    }
+  }
+
+  @Nullable
+  private byte[] awaitClass(final String name) throws InterruptedException {
+    // nested classes are compiled with their outer class
+    int i = name.indexOf('$');
+    String outerName = i == -1 ? name : name.substring(0, i);
+
+    synchronized (lock) {
+      while (!complete && !classes.containsKey(name) && expected.contains(outerName)) {
+        lock.wait();
+      }
+      return classes.get(name);
+    }
+  }
+
+  @Override
+  protected Class<?> findClass(final String name) throws ClassNotFoundException {
+    byte[] bytes;
+    try {
+      bytes = awaitClass(name);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ClassNotFoundException(name, e);
+    }
+
+    if (bytes == null) {
+      throw new ClassNotFoundException(name);
+    }
+    return defineClass(name, bytes, 0, bytes.length);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "scriptpath=" + scriptpath +
+        '}';
+  }
+}
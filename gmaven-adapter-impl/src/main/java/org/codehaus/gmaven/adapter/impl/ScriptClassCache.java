@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.GroovySystem;
+import org.codehaus.gmaven.adapter.ClasspathFiles;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Persistent content-addressed cache of {@link CompiledScript} instances.
+ *
+ * Entries are keyed by script source, Groovy version, compiler configuration and class-path fingerprint.  File and url
+ * sources are also keyed by name.  The class-path fingerprint covers the class-loaders visible to scripts, up to the
+ * Groovy runtime realm, and is computed once for each realm.
+ * Entries are written to a temporary file and atomically renamed, so several builds may share the same directory.
+ * When the total size exceeds the configured maximum, least-recently-used entries are evicted.
+ *
+ * @since 2.2.0
+ */
+public class ScriptClassCache
+{
+  private static final String EXTENSION = ".script";
+
+  private static final String TEMP_EXTENSION = ".tmp";
+
+  /**
+   * Orphaned temporary files older than this are removed on eviction.
+   */
+  private static final long TEMP_EXPIRE_MILLIS = 60 * 60 * 1000;
+
+  /**
+   * Class-path fingerprints of realms and jar indexes, which live as long as their class-loader.
+   */
+  private static final Cache<ClassLoader, ClasspathFingerprint> classpathFingerprints =
+      CacheBuilder.newBuilder().weakKeys().build();
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final File directory;
+
+  private final long maxSize;
+
+  public ScriptClassCache(final File directory, final long maxSize) {
+    this.directory = checkNotNull(directory);
+    checkArgument(maxSize > 0);
+    this.maxSize = maxSize;
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Returns cache key for given source, or null if the source can not be cached.
+   */
+  @Nullable
+  public String key(final GroovyCodeSource codeSource, final CompilerConfiguration cc, final ClassLoader classLoader) {
+    checkNotNull(codeSource);
+    checkNotNull(cc);
+    checkNotNull(classLoader);
+
+    String text = codeSource.getScriptText();
+    String configuration = CompiledScript.fingerprint(cc);
+    if (text == null || configuration == null) {
+      return null;
+    }
+
+    Hasher hasher = Hashing.sha1().newHasher();
+    putString(hasher, text);
+    // class and source file names are derived from the name of file and url sources; inline names are generated
+    if (codeSource.getFile() != null || codeSource.getURL() != null) {
+      putString(hasher, codeSource.getName());
+    }
+    putString(hasher, GroovySystem.getVersion());
+    putString(hasher, configuration);
+    putString(hasher, fingerprint(classLoader));
+    return hasher.hash().toString();
+  }
+
+  private static void putString(final Hasher hasher, final String value) {
+    byte[] bytes = value.getBytes(Charsets.UTF_8);
+    hasher.putInt(bytes.length).putBytes(bytes);
+  }
+
+  /**
+   * Fingerprint the class-path visible to scripts: the class-loaders up to the Groovy runtime realm, precompiled
+   * scriptpath and indexed jars.  Parents of the realm are Maven and the JDK, which do not change during a build.
+   */
+  private static String fingerprint(final ClassLoader classLoader) {
+    ClassLoader realm = GroovySystem.class.getClassLoader();
+    boolean visible = true;
+
+    StringBuilder buff = new StringBuilder();
+    for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+      if (cl instanceof BatchClassLoader && ((BatchClassLoader) cl).getFingerprint() != null) {
+        buff.append(((BatchClassLoader) cl).getFingerprint()).append(',');
+      }
+      if (cl instanceof PrecompiledClassLoader) {
+        buff.append('[');
+        for (File path : ((PrecompiledClassLoader) cl).getScriptpath()) {
+          buff.append(path);
+          appendFileState(buff, path);
+          buff.append(',');
+        }
+        buff.append(']');
+      }
+      else if (cl instanceof ClasspathFiles || (visible && cl instanceof URLClassLoader)) {
+        buff.append('[').append(classpathFingerprint(cl)).append(']');
+      }
+      if (cl == realm) {
+        visible = false;
+      }
+    }
+    return buff.toString();
+  }
+
+  /**
+   * Fingerprint of the class-path of a realm or jar index; computed once for each class-loader, as long as no entries
+   * are added.
+   */
+  private static String classpathFingerprint(final ClassLoader classLoader) {
+    List<?> entries = classLoader instanceof ClasspathFiles
+        ? ((ClasspathFiles) classLoader).getFiles()
+        : Arrays.asList(((URLClassLoader) classLoader).getURLs());
+
+    ClasspathFingerprint cached = classpathFingerprints.getIfPresent(classLoader);
+    if (cached != null && cached.entries == entries.size()) {
+      return cached.value;
+    }
+
+    StringBuilder buff = new StringBuilder();
+    for (Object entry : entries) {
+      File file = null;
+      if (entry instanceof File) {
+        file = (File) entry;
+      }
+      else if ("file".equals(((URL) entry).getProtocol())) {
+        try {
+          file = new File(((URL) entry).toURI());
+        }
+        catch (URISyntaxException e) {
+          // ignore; url alone is fingerprinted
+        }
+      }
+      buff.append(entry);
+      if (file != null) {
+        appendFileState(buff, file);
+      }
+      buff.append(',');
+    }
+
+    String value = buff.toString();
+    classpathFingerprints.put(classLoader, new ClasspathFingerprint(entries.size(), value));
+    return value;
+  }
+
+  private static class ClasspathFingerprint
+  {
+    private final int entries;
+
+    private final String value;
+
+    private ClasspathFingerprint(final int entries, final String value) {
+      this.entries = entries;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Appends file size and modification time; directories include the state of all contained files.
+   */
+  private static void appendFileState(final StringBuilder buff, final File file) {
+    buff.append(':').append(file.length()).append(':').append(file.lastModified());
+    if (file.isDirectory()) {
+      File[] children = file.listFiles();
+      if (children != null) {
+        Arrays.sort(children);
+        for (File child : children) {
+          buff.append('/').append(child.getName());
+          appendFileState(buff, child);
+        }
+      }
+    }
+  }
+
+  private File entryFile(final String key) {
+    return new File(directory, key + EXTENSION);
+  }
+
+  /**
+   * Returns cached script for given key or null.
+   */
+  @Nullable
+  public CompiledScript get(final String key) {
+    checkNotNull(key);
+
+    File file = entryFile(key);
+    if (!file.isFile()) {
+      log.trace("Miss: {}", key);
+      return null;
+    }
+
+    try {
+      InputStream input = new BufferedInputStream(new FileInputStream(file));
+      try {
+        CompiledScript script = CompiledScript.read(input);
+        log.trace("Hit: {} -> {}", key, script);
+
+        // record access for LRU eviction
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+
+        return script;
+      }
+      finally {
+        input.close();
+      }
+    }
+    catch (IOException e) {
+      log.debug("Discarding invalid entry: {}", file, e);
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * Store script for given key.  Failures are logged and ignored.
+   */
+  public void put(final String key, final CompiledScript script) {
+    checkNotNull(key);
+    checkNotNull(script);
+    checkArgument(script.isStandalone(), "Only standalone scripts may be cached");
+
+    if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+      log.warn("Unable to create class cache directory: {}", directory);
+      return;
+    }
+
+    File file = entryFile(key);
+    File temp = new File(directory, key + "-" + UUID.randomUUID() + TEMP_EXTENSION);
+    try {
+      OutputStream output = new BufferedOutputStream(new FileOutputStream(temp));
+      try {
+        script.write(output);
+      }
+      finally {
+        output.close();
+      }
+
+      // another build may have stored the same entry concurrently; content is identical so either wins
+      if (!temp.renameTo(file) && !file.isFile()) {
+        throw new IOException("Failed to rename " + temp + " to " + file);
+      }
+      log.trace("Stored: {} -> {}", key, script);
+    }
+    catch (IOException e) {
+      log.warn("Failed to store compiled script: {}", file, e);
+    }
+    finally {
+      if (temp.exists()) {
+        //noinspection ResultOfMethodCallIgnored
+        temp.delete();
+      }
+    }
+
+    evict();
+  }
+
+  /**
+   * Evict least-recently-used entries until the cache fits its maximum size.
+   */
+  private void evict() {
+    final long now = System.currentTimeMillis();
+
+    File[] files = directory.listFiles(new FileFilter()
+    {
+      @Override
+      public boolean accept(final File file) {
+        if (file.getName().endsWith(TEMP_EXTENSION)) {
+          if (now - file.lastModified() > TEMP_EXPIRE_MILLIS) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+          }
+          return false;
+        }
+        return file.getName().endsWith(EXTENSION);
+      }
+    });
+    if (files == null) {
+      return;
+    }
+
+    // capture state once; entries may be touched or removed concurrently by other builds
+    final Map<File, Long> modified = new TreeMap<File, Long>();
+    long size = 0;
+    for (File file : files) {
+      modified.put(file, file.lastModified());
+      size += file.length();
+    }
+    if (size <= maxSize) {
+      return;
+    }
+
+    Arrays.sort(files, new Comparator<File>()
+    {
+      @Override
+      public int compare(final File a, final File b) {
+        long ma = modified.get(a);
+        long mb = modified.get(b);
+        return ma < mb ? -1 : (ma == mb ? 0 : 1);
+      }
+    });
+
+    for (File file : files) {
+      if (size <= maxSize) {
+        break;
+      }
+      long length = file.length();
+      if (file.delete()) {
+        log.trace("Evicted: {}", file);
+        size -= length;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "directory=" + directory +
+        ", maxSize=" + maxSize +
+        '}';
+  }
+}
@@ -15,21 +15,27 @@
  */
 package org.codehaus.gmaven.adapter.impl;
 
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nullable;
 
-import groovy.lang.Binding;
 import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyCodeSource;
-import groovy.lang.GroovyShell;
 import org.codehaus.gmaven.adapter.ClassSource;
+import org.codehaus.gmaven.adapter.PhaseRecorder;
+import org.codehaus.gmaven.adapter.PhaseRecorder.Phase;
 import org.codehaus.gmaven.adapter.ResourceLoader;
+import org.codehaus.gmaven.adapter.ScriptEventListener;
 import org.codehaus.gmaven.adapter.ScriptExecutor;
 import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -40,6 +46,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class ScriptExecutorImpl
     implements ScriptExecutor
 {
+  private static final long DEFAULT_CLASS_CACHE_MAX_SIZE = 64 * 1024 * 1024;
+
   private final Logger log = LoggerFactory.getLogger(getClass());
 
   private final GroovyRuntimeImpl runtime;
@@ -58,36 +66,116 @@ public class ScriptExecutorImpl
       throws Exception
   {
     checkNotNull(classSource);
+    return execute(Collections.singletonList(classSource), classLoader, resourceLoader, context, options);
+  }
+
+  @Override
+  @Nullable
+  public Object execute(final List<ClassSource> classSources,
+                        final ClassLoader classLoader,
+                        final ResourceLoader resourceLoader,
+                        final Map<String, Object> context,
+                        final @Nullable Map<String, Object> options)
+      throws Exception
+  {
+    checkNotNull(classSources);
+    checkArgument(!classSources.isEmpty(), "Missing class sources");
     checkNotNull(classLoader);
     checkNotNull(resourceLoader);
     checkNotNull(context);
 
-    log.trace("Execute; class-source: {}, class-loader: {}, resource-loader: {}, context: {}",
-        classSource, classLoader, resourceLoader, context);
-
-    GroovyClassLoader gcl = runtime.createGroovyClassLoader(classLoader, resourceLoader);
+    log.trace("Execute; class-sources: {}, class-loader: {}, resource-loader: {}, context: {}",
+        classSources, classLoader, resourceLoader, context);
 
-    CompilerConfiguration cc = new CompilerConfiguration();
+    // scriptpath sources loaded at runtime are compiled with the same configuration as the scripts
+    CompilerConfiguration cc = runtime.createCompilerConfiguration(options);
 
-    // TODO: How, if at all, do we want to expose compiler configuration customizations?
+    // a batch shares classes of earlier scripts with later ones
+    GroovyClassLoader gcl;
+    if (classSources.size() > 1) {
+      gcl = runtime.createBatchClassLoader(classLoader, resourceLoader, cc);
+    }
+    else {
+      gcl = runtime.createGroovyClassLoader(classLoader, resourceLoader, cc);
+    }
 
-    Binding binding = runtime.createBinding(context);
-    GroovyShell shell = new GroovyShell(gcl, binding, cc);
+    ScriptClassCache classCache = null;
 
     if (options != null) {
-      configureOptions(shell, options);
+      classCache = createClassCache(options);
     }
 
-    GroovyCodeSource codeSource = runtime.createGroovyCodeSource(classSource);
+    PhaseRecorder recorder = options != null ? (PhaseRecorder) options.get(PHASE_RECORDER) : null;
+    ScriptEventListener listener = options != null ? (ScriptEventListener) options.get(EVENT_LISTENER) : null;
+
+    Phase phase = start(recorder, "binding");
+    LazyBinding binding;
     try {
-      return shell.evaluate(codeSource);
+      binding = runtime.createBinding(context, options);
     }
     finally {
+      stop(phase);
+    }
+
+    try {
+      Object result = null;
+      for (ClassSource classSource : classSources) {
+        GroovyCodeSource codeSource = runtime.createGroovyCodeSource(classSource);
+
+        Class type;
+        phase = start(recorder, "compile");
+        try {
+          long start = System.nanoTime();
+          CompiledScript script = runtime.compileScript(codeSource, cc, gcl, classCache);
+          type = script.define(gcl);
+          if (gcl instanceof BatchClassLoader) {
+            ((BatchClassLoader) gcl).register(script, type);
+          }
+          if (listener != null) {
+            listener.scriptCompiled(codeSource.getName(), script.getClasses().size(), System.nanoTime() - start);
+          }
+        }
+        finally {
+          stop(phase);
+        }
+
+        phase = start(recorder, "execute");
+        try {
+          result = InvokerHelper.createScript(type, binding).run();
+        }
+        finally {
+          stop(phase);
+        }
+      }
+      return result;
+    }
+    finally {
+      binding.close();
       gcl.clearCache();
     }
   }
 
-  private void configureOptions(final GroovyShell shell, final Map<String, Object> options) {
-    // TODO
+  @Nullable
+  private static Phase start(final @Nullable PhaseRecorder recorder, final String name) {
+    return recorder != null ? recorder.start(name) : null;
+  }
+
+  private static void stop(final @Nullable Phase phase) {
+    if (phase != null) {
+      phase.stop();
+    }
+  }
+
+  @Nullable
+  private ScriptClassCache createClassCache(final Map<String, Object> options) {
+    File directory = (File) options.get(CLASS_CACHE_DIRECTORY);
+    if (directory == null) {
+      return null;
+    }
+
+    Long maxSize = (Long) options.get(CLASS_CACHE_MAX_SIZE);
+    ScriptClassCache cache = new ScriptClassCache(directory, maxSize != null ? maxSize : DEFAULT_CLASS_CACHE_MAX_SIZE);
+    log.trace("Class cache: {}", cache);
+    return cache;
   }
 }
@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyResourceLoader;
+import org.codehaus.gmaven.adapter.ScriptPrecompiler;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default {@link ScriptPrecompiler} implementation.
+ *
+ * Scriptpath sources which may depend on each other are grouped, and the groups are partitioned and compiled by one
+ * thread per core.  Each source is compiled once, and compilation threads never wait on each other.
+ *
+ * @since 2.2.0
+ */
+public class ScriptPrecompilerImpl
+    implements ScriptPrecompiler
+{
+  private static final String DOT_GROOVY = ".groovy";
+
+  private static final Pattern IDENTIFIER =
+      Pattern.compile("\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*");
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final GroovyRuntimeImpl runtime;
+
+  ScriptPrecompilerImpl(final GroovyRuntimeImpl runtime) {
+    this.runtime = checkNotNull(runtime);
+  }
+
+  @Override
+  public PrecompileHandle precompile(final ClassLoader classLoader,
+                                     final List<File> scriptpath,
+                                     final @Nullable Map<String, Object> options)
+      throws Exception
+  {
+    checkNotNull(classLoader);
+    checkNotNull(scriptpath);
+
+    log.trace("Precompile; class-loader: {}, scriptpath: {}", classLoader, scriptpath);
+
+    final CompilerConfiguration cc = runtime.createCompilerConfiguration(options);
+
+    // first scriptpath entry defining a class wins; same as resolution at execution
+    Map<String, File> sources = new LinkedHashMap<String, File>();
+    for (File path : scriptpath) {
+      findSources(path, "", sources);
+    }
+    log.debug("Precompiling {} scriptpath sources", sources.size());
+
+    final PrecompiledClassLoader loader = new PrecompiledClassLoader(classLoader, scriptpath, sources.keySet());
+    if (sources.isEmpty()) {
+      loader.complete();
+      return new PrecompileHandleImpl(loader, null);
+    }
+
+    final int threads = Math.min(Runtime.getRuntime().availableProcessors(), sources.size());
+    final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("gmaven-precompile-%d")
+        .setDaemon(true)
+        .build());
+
+    // sources are read to group them, which is left to the background as well
+    final Map<String, File> found = sources;
+    executor.execute(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          List<List<List<File>>> partitions = partition(group(found, cc.getSourceEncoding()), threads);
+          compilePartitions(partitions, executor, cc, classLoader, scriptpath, loader);
+        }
+        catch (Exception e) {
+          // leave all to compile on demand
+          log.debug("Failed to read scriptpath sources", e);
+          loader.complete();
+        }
+        finally {
+          executor.shutdown();
+        }
+      }
+    });
+
+    return new PrecompileHandleImpl(loader, executor);
+  }
+
+  /**
+   * Compile each partition by a separate task; marks the loader complete once all are done.
+   */
+  private void compilePartitions(final List<List<List<File>>> partitions,
+                                 final ExecutorService executor,
+                                 final CompilerConfiguration cc,
+                                 final ClassLoader classLoader,
+                                 final List<File> scriptpath,
+                                 final PrecompiledClassLoader loader)
+  {
+    final AtomicInteger pending = new AtomicInteger(partitions.size());
+    try {
+      for (final List<List<File>> groups : partitions) {
+        executor.execute(new Runnable()
+        {
+          @Override
+          public void run() {
+            try {
+              compile(groups, cc, classLoader, scriptpath, loader);
+            }
+            finally {
+              if (pending.decrementAndGet() == 0) {
+                log.debug("Precompilation complete");
+                loader.complete();
+              }
+            }
+          }
+        });
+      }
+    }
+    catch (RejectedExecutionException e) {
+      // cancelled
+      loader.complete();
+    }
+  }
+
+  /**
+   * Group sources which may depend on each other; each source is in exactly one group.
+   *
+   * A source may depend on a scriptpath class if the simple name of the class occurs as an identifier in its text.
+   * This over-approximates the classes which the compiler resolves from the scriptpath, as those are always named.
+   */
+  @VisibleForTesting
+  static List<List<File>> group(final Map<String, File> sources, final String encoding) throws IOException {
+    List<File> files = new ArrayList<File>(sources.values());
+
+    Map<String, List<Integer>> simpleNames = new HashMap<String, List<Integer>>();
+    int index = 0;
+    for (String className : sources.keySet()) {
+      String simpleName = className.substring(className.lastIndexOf('.') + 1);
+      List<Integer> classes = simpleNames.get(simpleName);
+      if (classes == null) {
+        classes = new ArrayList<Integer>(1);
+        simpleNames.put(simpleName, classes);
+      }
+      classes.add(index++);
+    }
+
+    // union-find of source indexes
+    int[] parents = new int[files.size()];
+    for (int i = 0; i < parents.length; i++) {
+      parents[i] = i;
+    }
+    for (int i = 0; i < files.size(); i++) {
+      Matcher matcher = IDENTIFIER.matcher(Files.toString(files.get(i), Charset.forName(encoding)));
+      while (matcher.find()) {
+        List<Integer> classes = simpleNames.get(matcher.group());
+        if (classes != null) {
+          for (int j : classes) {
+            parents[root(parents, i)] = root(parents, j);
+          }
+        }
+      }
+    }
+
+    Map<Integer, List<File>> groups = new LinkedHashMap<Integer, List<File>>();
+    for (int i = 0; i < files.size(); i++) {
+      int root = root(parents, i);
+      List<File> group = groups.get(root);
+      if (group == null) {
+        group = new ArrayList<File>();
+        groups.put(root, group);
+      }
+      group.add(files.get(i));
+    }
+    return new ArrayList<List<File>>(groups.values());
+  }
+
+  private static int root(final int[] parents, final int index) {
+    int i = index;
+    while (parents[i] != i) {
+      parents[i] = parents[parents[i]];
+      i = parents[i];
+    }
+    return i;
+  }
+
+  /**
+   * Distribute groups over at most the given number of partitions; largest groups first, to the smallest partition.
+   */
+  @VisibleForTesting
+  static List<List<List<File>>> partition(final List<List<File>> groups, final int count) {
+    List<List<File>> sorted = new ArrayList<List<File>>(groups);
+    Collections.sort(sorted, new Comparator<List<File>>()
+    {
+      @Override
+      public int compare(final List<File> a, final List<File> b) {
+        return b.size() - a.size();
+      }
+    });
+
+    int size = Math.min(count, sorted.size());
+    List<List<List<File>>> partitions = new ArrayList<List<List<File>>>(size);
+    int[] sizes = new int[size];
+    for (int i = 0; i < size; i++) {
+      partitions.add(new ArrayList<List<File>>());
+    }
+    for (List<File> group : sorted) {
+      int smallest = 0;
+      for (int i = 1; i < size; i++) {
+        if (sizes[i] < sizes[smallest]) {
+          smallest = i;
+        }
+      }
+      partitions.get(smallest).add(group);
+      sizes[smallest] += group.size();
+    }
+    return partitions;
+  }
+
+  private void findSources(final File dir, final String prefix, final Map<String, File> sources) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (file.isDirectory()) {
+        findSources(file, prefix + name + ".", sources);
+      }
+      else if (name.endsWith(DOT_GROOVY)) {
+        String className = prefix + name.substring(0, name.length() - DOT_GROOVY.length());
+        if (!sources.containsKey(className)) {
+          sources.put(className, file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Compile given groups together; if that fails compile each group on its own, then each file of a failed group.
+   * Files which fail on their own are skipped.
+   */
+  private void compile(final List<List<File>> groups,
+                       final CompilerConfiguration cc,
+                       final ClassLoader classLoader,
+                       final List<File> scriptpath,
+                       final PrecompiledClassLoader loader)
+  {
+    List<File> files = new ArrayList<File>();
+    for (List<File> group : groups) {
+      files.addAll(group);
+    }
+    try {
+      loader.add(compileUnit(files, cc, classLoader, scriptpath));
+      return;
+    }
+    catch (Exception e) {
+      log.trace("Failed to precompile together: {}", files, e);
+    }
+
+    for (List<File> group : groups) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      }
+      if (groups.size() > 1) {
+        try {
+          loader.add(compileUnit(group, cc, classLoader, scriptpath));
+          continue;
+        }
+        catch (Exception e) {
+          log.trace("Failed to precompile together: {}", group, e);
+        }
+      }
+      for (File file : group) {
+        if (Thread.currentThread().isInterrupted()) {
+          return;
+        }
+        try {
+          loader.add(compileUnit(Collections.singletonList(file), cc, classLoader, scriptpath));
+        }
+        catch (Exception e) {
+          // leave it to compile on demand, which reports any problem
+          log.debug("Failed to precompile: {}", file, e);
+        }
+      }
+    }
+  }
+
+  private Map<String, byte[]> compileUnit(final List<File> files,
+                                          final CompilerConfiguration cc,
+                                          final ClassLoader classLoader,
+                                          final List<File> scriptpath)
+  {
+    GroovyClassLoader gcl = AccessController.doPrivileged(new PrivilegedAction<GroovyClassLoader>()
+    {
+      @Override
+      public GroovyClassLoader run() {
+        GroovyClassLoader gcl = new GroovyClassLoader(classLoader);
+        gcl.setResourceLoader(createResourceLoader(scriptpath));
+        return gcl;
+      }
+    });
+
+    CompilationUnit unit = new CompilationUnit(cc, null, gcl);
+    for (File file : files) {
+      unit.addSource(file);
+    }
+    unit.compile(Phases.CLASS_GENERATION);
+
+    return CompiledScript.collectClasses(unit);
+  }
+
+  /**
+   * Resolve sources from the scriptpath only.
+   */
+  private GroovyResourceLoader createResourceLoader(final List<File> scriptpath) {
+    return new GroovyResourceLoader()
+    {
+      @Override
+      public URL loadGroovySource(final String className) throws MalformedURLException {
+        String name = className.replace('.', '/') + DOT_GROOVY;
+        for (File path : scriptpath) {
+          File file = new File(path, name);
+          if (file.isFile()) {
+            return file.toURI().toURL();
+          }
+        }
+        return null;
+      }
+    };
+  }
+
+  private static class PrecompileHandleImpl
+      implements PrecompileHandle
+  {
+    private final PrecompiledClassLoader loader;
+
+    private final ExecutorService executor;
+
+    private PrecompileHandleImpl(final PrecompiledClassLoader loader, final @Nullable ExecutorService executor) {
+      this.loader = loader;
+      this.executor = executor;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+      return loader;
+    }
+
+    @Override
+    public void await() throws InterruptedException {
+      loader.await();
+    }
+
+    @Override
+    public void cancel() {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+      loader.complete();
+    }
+  }
+}
@@ -16,11 +16,18 @@
 package org.codehaus.gmaven.adapter.impl;
 
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nullable;
 
-import groovy.lang.Binding;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import groovy.lang.GroovyClassLoader;
+import org.codehaus.gmaven.adapter.CompletionIndex;
 import org.codehaus.gmaven.adapter.ResourceLoader;
 import org.codehaus.gmaven.adapter.ShellRunner;
 import org.codehaus.groovy.tools.shell.Groovysh;
@@ -38,6 +45,17 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class ShellRunnerImpl
     implements ShellRunner
 {
+  /**
+   * Classes the shell loads when it starts to run.
+   */
+  private static final String[] WARMUP_CLASSES = {
+      "org.codehaus.groovy.tools.shell.InteractiveShellRunner",
+      "org.codehaus.groovy.tools.shell.completion.ReflectionCompletor",
+      "org.codehaus.groovy.tools.shell.completion.GroovySyntaxCompletor",
+      "jline.console.ConsoleReader",
+      "jline.console.history.FileHistory"
+  };
+
   private final Logger log = LoggerFactory.getLogger(getClass());
 
   private final GroovyRuntimeImpl runtime;
@@ -47,37 +65,139 @@ public class ShellRunnerImpl
   }
 
   @Override
-  public void run(final ClassLoader classLoader,
-                  final ResourceLoader resourceLoader,
-                  final Map<String, Object> context,
-                  final @Nullable Map<String, Object> options)
+  public ShellHandle prepare(final ClassLoader classLoader,
+                             final ResourceLoader resourceLoader,
+                             final @Nullable Map<String, Object> options)
       throws Exception
   {
     checkNotNull(classLoader);
     checkNotNull(resourceLoader);
-    checkNotNull(context);
 
-    log.trace("Running; class-loader: {}, resource-loader: {}, context: {}",
-        classLoader, resourceLoader, context);
+    log.trace("Preparing; class-loader: {}, resource-loader: {}", classLoader, resourceLoader);
+
+    final GroovyClassLoader gcl = runtime.createGroovyClassLoader(classLoader, resourceLoader);
+    final LazyBinding binding = new LazyBinding();
 
-    GroovyClassLoader gcl = runtime.createGroovyClassLoader(classLoader, resourceLoader);
-    Binding binding = runtime.createBinding(context);
+    final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("gmaven-shell-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      Future<Groovysh> shell = executor.submit(new Callable<Groovysh>()
+      {
+        @Override
+        public Groovysh call() throws Exception {
+          return createShell(gcl, binding, options);
+        }
+      });
+      return new ShellHandleImpl(shell, gcl, binding, options);
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
 
+  /**
+   * Create the shell with an empty binding; the context is bound when run.
+   */
+  private Groovysh createShell(final GroovyClassLoader gcl,
+                               final LazyBinding binding,
+                               final @Nullable Map<String, Object> options)
+  {
     Groovysh shell = new Groovysh(gcl, binding, new IO());
 
     if (options != null) {
       configureOptions(shell, options);
     }
 
-    try {
-      shell.run(null);
+    // initialize classes used once the shell runs; terminal setup is left to the shell
+    for (String className : WARMUP_CLASSES) {
+      try {
+        Class.forName(className, true, gcl);
+      }
+      catch (ClassNotFoundException e) {
+        log.trace("Missing warm-up class: {}", className);
+      }
     }
-    finally {
-      gcl.clearCache();
+    return shell;
+  }
+
+  private class ShellHandleImpl
+      implements ShellHandle
+  {
+    private final Future<Groovysh> shell;
+
+    private final GroovyClassLoader gcl;
+
+    private final LazyBinding binding;
+
+    private final Map<String, Object> options;
+
+    private ShellHandleImpl(final Future<Groovysh> shell,
+                            final GroovyClassLoader gcl,
+                            final LazyBinding binding,
+                            final @Nullable Map<String, Object> options)
+    {
+      this.shell = shell;
+      this.gcl = gcl;
+      this.binding = binding;
+      this.options = options;
+    }
+
+    @Override
+    public void run(final Map<String, Object> context) throws Exception {
+      checkNotNull(context);
+
+      log.trace("Running; context: {}", context);
+
+      try {
+        Groovysh groovysh;
+        try {
+          groovysh = shell.get();
+        }
+        catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), Exception.class);
+          throw Throwables.propagate(e.getCause());
+        }
+
+        runtime.populateBinding(binding, context, options);
+        groovysh.run(null);
+      }
+      finally {
+        binding.close();
+        gcl.clearCache();
+      }
     }
+
+    @Override
+    public void cancel() {
+      if (shell.cancel(true)) {
+        gcl.clearCache();
+      }
+    }
+  }
+
+  @Override
+  public void run(final ClassLoader classLoader,
+                  final ResourceLoader resourceLoader,
+                  final Map<String, Object> context,
+                  final @Nullable Map<String, Object> options)
+      throws Exception
+  {
+    checkNotNull(context);
+    prepare(classLoader, resourceLoader, options).run(context);
   }
 
   private void configureOptions(final Groovysh shell, final Map<String, Object> options) {
-    // TODO:
+    CompletionIndex index = (CompletionIndex) options.get(COMPLETION_INDEX);
+    if (index != null) {
+      try {
+        IndexedPackageHelper.install(shell, index);
+      }
+      catch (LinkageError e) {
+        // completion of this Groovy version has no package helper
+        log.debug("Ignoring completion index", e);
+      }
+    }
   }
 }
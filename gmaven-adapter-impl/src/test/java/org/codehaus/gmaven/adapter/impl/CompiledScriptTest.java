@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyClassLoader.InnerLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.lang.Script;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link CompiledScript}.
+ */
+public class CompiledScriptTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private CompiledScript compile(final String text, final CompilerConfiguration cc) {
+    GroovyClassLoader gcl = new GroovyClassLoader(getClass().getClassLoader());
+    return CompiledScript.compile(new GroovyCodeSource(text, "Sample.groovy", "/groovy/script"), cc, gcl);
+  }
+
+  private static String latin1(final byte[] bytes) throws Exception {
+    return new String(bytes, "ISO-8859-1");
+  }
+
+  @Test
+  public void debugInfoRetainedByDefault() throws Exception {
+    CompiledScript script = compile("return 1", new CompilerConfiguration());
+
+    String bytes = latin1(script.getClasses().get(script.getMainClassName()));
+    assertThat(bytes, containsString("LineNumberTable"));
+    assertThat(bytes, containsString("Sample.groovy"));
+  }
+
+  @Test
+  public void debugInfoStripped() throws Exception {
+    CompilerConfiguration cc = new CompilerConfiguration();
+    DebugInfoStripper.enable(cc);
+    CompiledScript script = compile("class Helper { int value() { 2 } }\nreturn new Helper().value()", cc);
+
+    assertThat(script.getClasses().size(), is(2));
+    for (Map.Entry<String, byte[]> entry : script.getClasses().entrySet()) {
+      assertThat(entry.getKey(), latin1(entry.getValue()), not(containsString("LineNumberTable")));
+    }
+
+    Class<?> type = script.define(new GroovyClassLoader(getClass().getClassLoader()));
+    assertThat(((Script) type.newInstance()).run(), is((Object) 2));
+  }
+
+  @Test
+  public void definedByInnerLoader() throws Exception {
+    GroovyClassLoader gcl = new GroovyClassLoader(getClass().getClassLoader());
+    CompiledScript script = compile("this.class.classLoader.parseClass('class Parsed { }').name",
+        new CompilerConfiguration());
+
+    Class<?> type = script.define(gcl);
+    assertThat(type.getClassLoader(), instanceOf(InnerLoader.class));
+    assertThat(type.getClassLoader().getParent(), sameInstance((ClassLoader) gcl));
+    assertThat(((Script) type.newInstance()).run(), is((Object) "Parsed"));
+  }
+
+  @Test
+  public void definedClassesMayAddClasspath() throws Exception {
+    File directory = temp.newFolder("classes");
+    Files.write("class Added { }".getBytes(Charsets.UTF_8), new File(directory, "Added.groovy"));
+
+    GroovyClassLoader gcl = new GroovyClassLoader(getClass().getClassLoader());
+    CompiledScript script = compile("this.class.classLoader.addClasspath(path)\n" +
+        "return this.class.classLoader.loadClass('Added').name", new CompilerConfiguration());
+
+    Script instance = (Script) script.define(gcl).newInstance();
+    instance.setProperty("path", directory.getPath());
+    assertThat(instance.run(), is((Object) "Added"));
+    assertThat(Arrays.asList(gcl.getURLs()), hasItem(directory.toURI().toURL()));
+  }
+
+  @Test
+  public void fingerprintIncludesDebugInfo() {
+    CompilerConfiguration cc = new CompilerConfiguration();
+    String defaults = CompiledScript.fingerprint(cc);
+    assertThat(CompiledScript.fingerprint(new CompilerConfiguration()), is(defaults));
+
+    DebugInfoStripper.enable(cc);
+    assertThat(CompiledScript.fingerprint(cc), not(defaults));
+  }
+
+  @Test
+  public void fingerprintIncludesFingerprintedCustomizers() {
+    CompilerConfiguration cc = new CompilerConfiguration();
+    String defaults = CompiledScript.fingerprint(cc);
+
+    cc.addCompilationCustomizers(new CompileStaticCustomizer());
+    assertThat(CompiledScript.fingerprint(cc), not(defaults));
+  }
+
+  @Test
+  public void noFingerprintWithOtherCustomizers() {
+    CompilerConfiguration cc = new CompilerConfiguration();
+    cc.addCompilationCustomizers(new ImportCustomizer().addStarImports("java.util.concurrent"));
+    assertThat(CompiledScript.fingerprint(cc), nullValue());
+  }
+}
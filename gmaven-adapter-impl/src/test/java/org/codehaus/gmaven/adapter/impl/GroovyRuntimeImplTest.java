@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import groovy.lang.Binding;
+import groovy.lang.Closure;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import groovy.util.AntBuilder;
+import org.codehaus.gmaven.adapter.LazyValue;
+import org.codehaus.gmaven.adapter.MagicContext;
+import org.codehaus.gmaven.adapter.ResourceLoader;
+import org.codehaus.gmaven.adapter.ScriptExecutor;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.classgen.GeneratorContext;
+import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link GroovyRuntimeImpl}.
+ */
+public class GroovyRuntimeImplTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private GroovyRuntimeImpl underTest;
+
+  private CountingCustomizer compilations;
+
+  private CompilerConfiguration cc;
+
+  /**
+   * Counts compiled classes; optionally blocks compilation until released.
+   */
+  private static class CountingCustomizer
+      extends CompilationCustomizer
+      implements FingerprintedCustomizer
+  {
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    @Nullable
+    private volatile CountDownLatch release;
+
+    private CountingCustomizer() {
+      super(CompilePhase.CONVERSION);
+    }
+
+    @Override
+    public String getFingerprint() {
+      return getClass().getName();
+    }
+
+    @Override
+    public void call(final SourceUnit source, final GeneratorContext context, final ClassNode classNode)
+        throws CompilationFailedException
+    {
+      count.incrementAndGet();
+      started.countDown();
+      CountDownLatch latch = release;
+      if (latch != null) {
+        try {
+          latch.await();
+        }
+        catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new GroovyRuntimeImpl();
+    compilations = new CountingCustomizer();
+    cc = new CompilerConfiguration();
+    cc.addCompilationCustomizers(compilations);
+  }
+
+  private CompiledScript compile(final GroovyCodeSource source, final ClassLoader parent) throws Exception {
+    return underTest.compileScript(source, cc, new GroovyClassLoader(parent), null);
+  }
+
+  private static GroovyCodeSource inline(final String text, final String name) {
+    return new GroovyCodeSource(text, name, "/groovy/script");
+  }
+
+  private GroovyCodeSource file(final String name, final String text) throws Exception {
+    File file = new File(temp.getRoot(), name);
+    Files.write(text.getBytes(Charsets.UTF_8), file);
+    return new GroovyCodeSource(file);
+  }
+
+  @Test
+  public void identicalSourceCompiledOnce() throws Exception {
+    ClassLoader parent = getClass().getClassLoader();
+    CompiledScript first = compile(inline("return 1", "script1.groovy"), parent);
+    CompiledScript second = compile(inline("return 1", "script1.groovy"), parent);
+
+    assertThat(second, sameInstance(first));
+    assertThat(compilations.count.get(), is(1));
+  }
+
+  @Test
+  public void concurrentCompilesShareOneCompilation() throws Exception {
+    final ClassLoader parent = getClass().getClassLoader();
+    compilations.release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<CompiledScript>> futures = new ArrayList<Future<CompiledScript>>();
+      for (int i = 0; i < 4; i++) {
+        futures.add(executor.submit(new Callable<CompiledScript>()
+        {
+          @Override
+          public CompiledScript call() throws Exception {
+            return compile(inline("return 1", "script1.groovy"), parent);
+          }
+        }));
+      }
+
+      // other callers wait for the blocked compilation
+      assertThat(compilations.started.await(10, TimeUnit.SECONDS), is(true));
+      Thread.sleep(100);
+      compilations.release.countDown();
+
+      CompiledScript first = futures.get(0).get();
+      for (Future<CompiledScript> future : futures) {
+        assertThat(future.get(), sameInstance(first));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(compilations.count.get(), is(1));
+  }
+
+  @Test
+  public void failedCompileNotRetained() throws Exception {
+    ClassLoader parent = getClass().getClassLoader();
+    for (int i = 0; i < 2; i++) {
+      try {
+        compile(inline("new NoSuchType()", "script1.groovy"), parent);
+        fail();
+      }
+      catch (CompilationFailedException e) {
+        // expected
+      }
+    }
+
+    // compiled again after the first failure
+    assertThat(compilations.count.get(), is(2));
+  }
+
+  @Test
+  public void compiledOncePerParentClassLoader() throws Exception {
+    ClassLoader first = new URLClassLoader(new URL[0], getClass().getClassLoader());
+    ClassLoader second = new URLClassLoader(new URL[0], getClass().getClassLoader());
+
+    CompiledScript script1 = compile(inline("return 1", "script1.groovy"), first);
+    CompiledScript script2 = compile(inline("return 1", "script1.groovy"), second);
+
+    assertThat(script2, not(sameInstance(script1)));
+    assertThat(compile(inline("return 1", "script1.groovy"), first), sameInstance(script1));
+    assertThat(compilations.count.get(), is(2));
+  }
+
+  @Test
+  public void notSharedWithOtherCustomizers() throws Exception {
+    cc.addCompilationCustomizers(new ImportCustomizer().addStarImports("java.util.concurrent"));
+    ClassLoader parent = getClass().getClassLoader();
+    CompiledScript first = compile(inline("return 1", "script1.groovy"), parent);
+    CompiledScript second = compile(inline("return 1", "script1.groovy"), parent);
+
+    assertThat(second, not(sameInstance(first)));
+    assertThat(compilations.count.get(), is(2));
+  }
+
+  @Test
+  public void inlineSourcesWithSameContentShared() throws Exception {
+    ClassLoader parent = getClass().getClassLoader();
+    CompiledScript first = compile(inline("return 1", "script1.groovy"), parent);
+    CompiledScript second = compile(inline("return 1", "script2.groovy"), parent);
+
+    assertThat(second, sameInstance(first));
+    assertThat(compilations.count.get(), is(1));
+  }
+
+  @Test
+  public void fileSourcesWithSameContentCompiledByName() throws Exception {
+    ClassLoader parent = getClass().getClassLoader();
+    CompiledScript first = compile(file("First.groovy", "return this.class.name"), parent);
+    CompiledScript second = compile(file("Second.groovy", "return this.class.name"), parent);
+
+    assertThat(first.getMainClassName(), is("First"));
+    assertThat(second.getMainClassName(), is("Second"));
+    assertThat(compile(file("First.groovy", "return this.class.name"), parent), sameInstance(first));
+    assertThat(compilations.count.get(), is(2));
+  }
+
+  /**
+   * Resolves sources from the temporary folder.
+   */
+  private ResourceLoader scriptpath() {
+    return new ResourceLoader()
+    {
+      @Override
+      public URL loadResource(final String name) throws MalformedURLException {
+        File file = new File(temp.getRoot(), name.replace('.', '/') + ".groovy");
+        return file.isFile() ? file.toURI().toURL() : null;
+      }
+    };
+  }
+
+  private CompilerConfiguration compileStatic() {
+    return underTest.createCompilerConfiguration(
+        Collections.<String, Object>singletonMap(ScriptExecutor.COMPILE_STATIC, true));
+  }
+
+  @Test
+  public void createGroovyClassLoader_scriptpathCompiledWithConfiguration() throws Exception {
+    // dynamic call, which static compilation rejects
+    file("Helper.groovy", "class Helper { def run() { return new Object().noSuchMethod() } }");
+    ClassLoader parent = getClass().getClassLoader();
+
+    assertThat(underTest.createGroovyClassLoader(parent, scriptpath()).loadClass("Helper").getName(), is("Helper"));
+    try {
+      underTest.createGroovyClassLoader(parent, scriptpath(), compileStatic()).loadClass("Helper");
+      fail();
+    }
+    catch (CompilationFailedException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void createBatchClassLoader_scriptpathCompiledWithConfiguration() throws Exception {
+    file("Helper.groovy", "class Helper { def run() { return new Object().noSuchMethod() } }");
+    ClassLoader parent = getClass().getClassLoader();
+
+    BatchClassLoader gcl = underTest.createBatchClassLoader(parent, scriptpath(), new CompilerConfiguration());
+    assertThat(gcl.loadClass("Helper").getName(), is("Helper"));
+    try {
+      underTest.createBatchClassLoader(parent, scriptpath(), compileStatic()).loadClass("Helper");
+      fail();
+    }
+    catch (CompilationFailedException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void createBinding_lazyContextResolvedOnFirstRead() throws Exception {
+    final AtomicInteger loaded = new AtomicInteger(0);
+    Map<String, Object> context = new LinkedHashMap<String, Object>();
+    context.put("plain", "value");
+    context.put("ant", MagicContext.ANT_BUILDER);
+    context.put("properties", new LazyValue()
+    {
+      @Override
+      public Object get() throws Exception {
+        loaded.incrementAndGet();
+        return "loaded";
+      }
+    });
+
+    Binding binding = underTest.createBinding(context);
+    assertThat(loaded.get(), is(0));
+    assertThat(binding.getVariable("plain"), is((Object) "value"));
+
+    assertThat(binding.getVariable("properties"), is((Object) "loaded"));
+    assertThat(binding.getVariable("properties"), is((Object) "loaded"));
+    assertThat(loaded.get(), is(1));
+
+    Object ant = binding.getVariable("ant");
+    assertThat(ant, instanceOf(AntBuilder.class));
+    assertThat(binding.getVariable("ant"), sameInstance(ant));
+  }
+
+  @Test
+  public void createBinding_setVariableOverridesLazyContext() throws Exception {
+    final AtomicInteger loaded = new AtomicInteger(0);
+    Map<String, Object> context = new LinkedHashMap<String, Object>();
+    context.put("ant", MagicContext.ANT_BUILDER);
+    context.put("properties", new LazyValue()
+    {
+      @Override
+      public Object get() throws Exception {
+        loaded.incrementAndGet();
+        return "loaded";
+      }
+    });
+
+    Binding binding = underTest.createBinding(context);
+    binding.setVariable("ant", "custom ant");
+    binding.setVariable("properties", "custom properties");
+
+    assertThat(binding.getVariable("ant"), is((Object) "custom ant"));
+    assertThat(binding.getVariable("properties"), is((Object) "custom properties"));
+    assertThat(loaded.get(), is(0));
+  }
+
+  @Test
+  public void createBinding_parallelClosedWithBinding() throws Exception {
+    Map<String, Object> context = new LinkedHashMap<String, Object>();
+    context.put("parallel", MagicContext.PARALLEL);
+
+    LazyBinding binding = underTest.createBinding(context);
+    ParallelHelper parallel = (ParallelHelper) binding.getVariable("parallel");
+    binding.close();
+
+    try {
+      parallel.submit(new Closure<Object>(this)
+      {
+        @Override
+        public Object call(final Object... args) {
+          return null;
+        }
+      });
+      fail();
+    }
+    catch (RejectedExecutionException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void createBinding_parallelUsesSharedExecutor() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("shared-%d")
+        .build());
+    try {
+      Map<String, Object> context = new LinkedHashMap<String, Object>();
+      context.put("parallel", MagicContext.PARALLEL);
+      Map<String, Object> options = new LinkedHashMap<String, Object>();
+      options.put(ScriptExecutor.PARALLELISM, 1);
+      options.put(ScriptExecutor.PARALLEL_EXECUTOR, executor);
+
+      LazyBinding binding = underTest.createBinding(context, options);
+      ParallelHelper parallel = (ParallelHelper) binding.getVariable("parallel");
+      Future<Object> thread = parallel.submit(new Closure<Object>(this)
+      {
+        @Override
+        public Object call(final Object... args) {
+          return Thread.currentThread().getName();
+        }
+      });
+      assertThat(thread.get(5, TimeUnit.SECONDS), is((Object) "shared-0"));
+
+      binding.close();
+      assertThat(executor.isShutdown(), is(false));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+}
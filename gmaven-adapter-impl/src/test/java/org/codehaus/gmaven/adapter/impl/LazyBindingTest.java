@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.codehaus.gmaven.adapter.LazyValue;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link LazyBinding}.
+ */
+public class LazyBindingTest
+    extends TestSupport
+{
+  private LazyBinding underTest;
+
+  /**
+   * Counts how often the value is computed.
+   */
+  private static class CountingValue
+      implements LazyValue
+  {
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    private final Object value;
+
+    private CountingValue(final Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public Object get() throws Exception {
+      count.incrementAndGet();
+      return value;
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new LazyBinding();
+  }
+
+  @Test
+  public void notResolvedUntilRead() {
+    CountingValue value = new CountingValue("value");
+    underTest.setLazyVariable("lazy", value);
+
+    assertThat(underTest.hasVariable("lazy"), is(true));
+    assertThat(value.count.get(), is(0));
+  }
+
+  @Test
+  public void resolvedOnceOnFirstRead() {
+    CountingValue value = new CountingValue("value");
+    underTest.setLazyVariable("lazy", value);
+
+    assertThat(underTest.getVariable("lazy"), is((Object) "value"));
+    assertThat(underTest.getVariable("lazy"), is((Object) "value"));
+    assertThat(value.count.get(), is(1));
+  }
+
+  @Test
+  public void resolvedToNull() {
+    CountingValue value = new CountingValue(null);
+    underTest.setLazyVariable("lazy", value);
+
+    assertThat(underTest.getVariable("lazy"), nullValue());
+    assertThat(underTest.getVariable("lazy"), nullValue());
+    assertThat(value.count.get(), is(1));
+  }
+
+  @Test
+  public void resolvedOnceByConcurrentReaders() throws Exception {
+    final CountingValue value = new CountingValue("value");
+    underTest.setLazyVariable("lazy", value);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Object>> futures = new ArrayList<Future<Object>>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(new Callable<Object>()
+        {
+          @Override
+          public Object call() throws Exception {
+            return underTest.getVariable("lazy");
+          }
+        }));
+      }
+      for (Future<Object> future : futures) {
+        assertThat(future.get(5, TimeUnit.SECONDS), is((Object) "value"));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    assertThat(value.count.get(), is(1));
+  }
+
+  @Test
+  public void setVariableOverridesLazyValue() {
+    CountingValue value = new CountingValue("lazy");
+    underTest.setLazyVariable("name", value);
+    underTest.setVariable("name", "set");
+
+    assertThat(underTest.getVariable("name"), is((Object) "set"));
+    assertThat(underTest.getVariables().get("name"), is((Object) "set"));
+    assertThat(value.count.get(), is(0));
+  }
+
+  @Test
+  public void setLazyVariableOverridesValue() {
+    CountingValue value = new CountingValue("lazy");
+    underTest.setVariable("name", "set");
+    underTest.setLazyVariable("name", value);
+
+    assertThat(underTest.getVariable("name"), is((Object) "lazy"));
+    assertThat(value.count.get(), is(1));
+  }
+
+  @Test
+  public void getVariablesResolvesPending() {
+    CountingValue first = new CountingValue("first");
+    CountingValue second = new CountingValue("second");
+    underTest.setLazyVariable("first", first);
+    underTest.setLazyVariable("second", second);
+    underTest.setVariable("plain", "plain");
+
+    Map<?, ?> variables = underTest.getVariables();
+    assertThat(variables.get("first"), is((Object) "first"));
+    assertThat(variables.get("second"), is((Object) "second"));
+    assertThat(variables.get("plain"), is((Object) "plain"));
+
+    underTest.getVariable("first");
+    assertThat(first.count.get(), is(1));
+    assertThat(second.count.get(), is(1));
+  }
+
+  @Test
+  public void failedResolutionRetried() {
+    final AtomicInteger attempts = new AtomicInteger(0);
+    underTest.setLazyVariable("lazy", new LazyValue()
+    {
+      @Override
+      public Object get() throws Exception {
+        if (attempts.incrementAndGet() == 1) {
+          throw new IOException("first attempt");
+        }
+        return "value";
+      }
+    });
+
+    try {
+      underTest.getVariable("lazy");
+      fail();
+    }
+    catch (RuntimeException e) {
+      assertThat(e.getCause().getMessage(), is("first attempt"));
+    }
+    assertThat(underTest.getVariable("lazy"), is((Object) "value"));
+    assertThat(attempts.get(), is(2));
+  }
+
+  @Test
+  public void closeInReverseOrder() {
+    final List<String> closed = new ArrayList<String>();
+    for (final String name : Arrays.asList("first", "second", "third")) {
+      underTest.closeOnCleanup(new Closeable()
+      {
+        @Override
+        public void close() throws IOException {
+          closed.add(name);
+          if (name.equals("second")) {
+            throw new IOException("failed to close");
+          }
+        }
+      });
+    }
+
+    underTest.close();
+    assertThat(closed, is(Arrays.asList("third", "second", "first")));
+
+    // resources are closed only once
+    underTest.close();
+    assertThat(closed.size(), is(3));
+  }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import groovy.lang.Closure;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ParallelHelper}.
+ */
+public class ParallelHelperTest
+    extends TestSupport
+{
+  private ParallelHelper underTest;
+
+  /**
+   * Closure calling {@link #run(Object)} with its argument.
+   */
+  private abstract class Task
+      extends Closure<Object>
+  {
+    Task() {
+      super(ParallelHelperTest.this);
+    }
+
+    @Override
+    public Object call(final Object... args) {
+      return run(args.length == 0 ? null : args[0]);
+    }
+
+    abstract Object run(Object item);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new ParallelHelper(2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.close();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidParallelism() {
+    new ParallelHelper(0);
+  }
+
+  @Test
+  public void collectParallel_resultsInOrder() {
+    List<Object> results = underTest.collectParallel(Arrays.asList(1, 2, 3, 4, 5), new Task()
+    {
+      @Override
+      Object run(final Object item) {
+        return (Integer) item * 10;
+      }
+    });
+    assertThat(results, is(Arrays.<Object>asList(10, 20, 30, 40, 50)));
+  }
+
+  @Test
+  public void collectParallel_array() {
+    List<Object> results = underTest.collectParallel(new Object[] { "a", "b" }, new Task()
+    {
+      @Override
+      Object run(final Object item) {
+        return item + "!";
+      }
+    });
+    assertThat(results, is(Arrays.<Object>asList("a!", "b!")));
+  }
+
+  @Test
+  public void collectParallel_boundedPoolThreads() {
+    final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    underTest.eachParallel(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), new Task()
+    {
+      @Override
+      Object run(final Object item) {
+        threads.add(Thread.currentThread().getName());
+        return null;
+      }
+    });
+    assertThat(threads.size(), lessThanOrEqualTo(2));
+    for (String thread : threads) {
+      assertThat(thread, startsWith("gmaven-parallel-"));
+    }
+  }
+
+  @Test
+  public void collectParallel_failureRethrown() {
+    final IllegalStateException failure = new IllegalStateException("item 3");
+    try {
+      underTest.collectParallel(Arrays.asList(1, 2, 3, 4), new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          if (item.equals(3)) {
+            throw failure;
+          }
+          return item;
+        }
+      });
+      fail();
+    }
+    catch (IllegalStateException e) {
+      assertThat(e, sameInstance(failure));
+    }
+  }
+
+  @Test
+  public void collectParallel_errorRethrown() {
+    final AssertionError failure = new AssertionError("item 1");
+    try {
+      underTest.eachParallel(Arrays.asList(1, 2), new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          if (item.equals(1)) {
+            throw failure;
+          }
+          return item;
+        }
+      });
+      fail();
+    }
+    catch (AssertionError e) {
+      assertThat(e, sameInstance(failure));
+    }
+  }
+
+  @Test
+  public void collectParallel_firstFailureRethrown() {
+    final CountDownLatch secondFailed = new CountDownLatch(1);
+    final IllegalStateException first = new IllegalStateException("first");
+    try {
+      underTest.collectParallel(Arrays.asList(1, 2), new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          if (item.equals(2)) {
+            secondFailed.countDown();
+            throw new IllegalStateException("second");
+          }
+          try {
+            secondFailed.await(5, TimeUnit.SECONDS);
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          throw first;
+        }
+      });
+      fail();
+    }
+    catch (IllegalStateException e) {
+      assertThat(e, sameInstance(first));
+    }
+  }
+
+  @Test
+  public void collectParallel_failureRethrownOnceStartedCallsComplete() {
+    final CountDownLatch started = new CountDownLatch(1);
+    final AtomicBoolean finished = new AtomicBoolean(false);
+    try {
+      underTest.eachParallel(Arrays.asList(1, 2), new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          try {
+            if (item.equals(1)) {
+              started.await(5, TimeUnit.SECONDS);
+              throw new IllegalStateException("item 1");
+            }
+            started.countDown();
+            Thread.sleep(200);
+            finished.set(true);
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return item;
+        }
+      });
+      fail();
+    }
+    catch (IllegalStateException e) {
+      assertThat(finished.get(), is(true));
+    }
+  }
+
+  @Test
+  public void collectParallel_unstartedCallsSkippedAfterFailure() {
+    underTest.close();
+    underTest = new ParallelHelper(1);
+
+    final AtomicInteger calls = new AtomicInteger(0);
+    try {
+      underTest.eachParallel(Arrays.asList(1, 2, 3), new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          calls.incrementAndGet();
+          throw new IllegalStateException("item " + item);
+        }
+      });
+      fail();
+    }
+    catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("item 1"));
+    }
+    assertThat(calls.get(), is(1));
+  }
+
+  /**
+   * Nested use on a single thread would deadlock unless items are processed on the calling thread.
+   */
+  @Test
+  public void collectParallel_nestedRunsOnCallingThread() {
+    underTest.close();
+    underTest = new ParallelHelper(1);
+
+    List<Object> results = underTest.collectParallel(Arrays.asList(1, 2), new Task()
+    {
+      @Override
+      Object run(final Object outer) {
+        final Thread caller = Thread.currentThread();
+        return underTest.collectParallel(Arrays.asList(1, 2), new Task()
+        {
+          @Override
+          Object run(final Object inner) {
+            assertThat(Thread.currentThread(), sameInstance(caller));
+            return (Integer) outer * 10 + (Integer) inner;
+          }
+        });
+      }
+    });
+    assertThat(results, is(Arrays.<Object>asList(Arrays.asList(11, 12), Arrays.asList(21, 22))));
+  }
+
+  @Test
+  public void submit() throws Exception {
+    Future<Object> future = underTest.submit(new Task()
+    {
+      @Override
+      Object run(final Object item) {
+        return Thread.currentThread().getName();
+      }
+    });
+    assertThat((String) future.get(5, TimeUnit.SECONDS), startsWith("gmaven-parallel-"));
+  }
+
+  @Test
+  public void close_interruptsRunningCalls() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch finished = new CountDownLatch(1);
+    final AtomicBoolean interrupted = new AtomicBoolean(false);
+    underTest.submit(new Task()
+    {
+      @Override
+      Object run(final Object item) {
+        started.countDown();
+        try {
+          new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+          interrupted.set(true);
+        }
+        finished.countDown();
+        return null;
+      }
+    });
+    assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+
+    underTest.close();
+
+    assertThat(finished.await(5, TimeUnit.SECONDS), is(true));
+    assertThat(interrupted.get(), is(true));
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void close_rejectsFurtherCalls() {
+    underTest.close();
+    underTest.submit(new Task()
+    {
+      @Override
+      Object run(final Object item) {
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void sharedExecutor_notShutDownWhenClosed() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ParallelHelper helper = new ParallelHelper(executor, 2);
+      List<Object> results = helper.collectParallel(Arrays.asList(1, 2), new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          return item;
+        }
+      });
+      assertThat(results, is(Arrays.<Object>asList(1, 2)));
+      helper.close();
+
+      assertThat(executor.isShutdown(), is(false));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void sharedExecutor_closeCancelsOnlyOwnCalls() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ParallelHelper first = new ParallelHelper(executor, 2);
+      ParallelHelper second = new ParallelHelper(executor, 2);
+
+      final CountDownLatch started = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      Future<Object> running = first.submit(new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          started.countDown();
+          try {
+            new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+          }
+          catch (InterruptedException e) {
+            return "interrupted";
+          }
+          return "completed";
+        }
+      });
+      Future<Object> other = second.submit(new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          }
+          catch (InterruptedException e) {
+            return "interrupted";
+          }
+          return "completed";
+        }
+      });
+      assertThat(started.await(5, TimeUnit.SECONDS), is(true));
+
+      first.close();
+      release.countDown();
+
+      assertThat(running.isCancelled(), is(true));
+      assertThat(other.get(5, TimeUnit.SECONDS), is((Object) "completed"));
+      second.close();
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Helpers sharing an executor also process nested items on the calling thread.
+   */
+  @Test
+  public void sharedExecutor_nestedRunsOnCallingThread() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+    try {
+      final ParallelHelper inner = new ParallelHelper(executor, 1);
+      ParallelHelper outer = new ParallelHelper(executor, 1);
+      List<Object> results = outer.collectParallel(Arrays.asList(1, 2), new Task()
+      {
+        @Override
+        Object run(final Object item) {
+          return inner.collectParallel(Arrays.asList(item), new Task()
+          {
+            @Override
+            Object run(final Object nested) {
+              return nested;
+            }
+          });
+        }
+      });
+      assertThat(results, is(Arrays.<Object>asList(Arrays.asList(1), Arrays.asList(2))));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link PrecompiledClassLoader}.
+ */
+public class PrecompiledClassLoaderTest
+    extends TestSupport
+{
+  private PrecompiledClassLoader underTest;
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new PrecompiledClassLoader(getClass().getClassLoader(), Collections.<File>emptyList(),
+        Collections.singleton("Foo"));
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  private Map<String, byte[]> compile(final String text) {
+    GroovyClassLoader gcl = new GroovyClassLoader(getClass().getClassLoader());
+    return CompiledScript.compile(new GroovyCodeSource(text, "Foo.groovy", "/groovy/script"),
+        new CompilerConfiguration(), gcl).getClasses();
+  }
+
+  private Future<Class<?>> loadInBackground(final String name) {
+    return executor.submit(new Callable<Class<?>>()
+    {
+      @Override
+      public Class<?> call() throws Exception {
+        return underTest.loadClass(name);
+      }
+    });
+  }
+
+  @Test
+  public void expectedClassAwaited() throws Exception {
+    Future<Class<?>> future = loadInBackground("Foo");
+    Thread.sleep(100);
+    assertThat(future.isDone(), is(false));
+
+    underTest.add(compile("class Foo { }"));
+
+    Class<?> type = future.get(10, TimeUnit.SECONDS);
+    assertThat(type.getName(), is("Foo"));
+    assertThat(type.getClassLoader(), sameInstance((ClassLoader) underTest));
+  }
+
+  @Test
+  public void nestedClassAwaitsOuterClass() throws Exception {
+    Future<Class<?>> future = loadInBackground("Foo$Bar");
+    Thread.sleep(100);
+    assertThat(future.isDone(), is(false));
+
+    underTest.add(compile("class Foo { static class Bar { } }"));
+
+    assertThat(future.get(10, TimeUnit.SECONDS).getName(), is("Foo$Bar"));
+  }
+
+  @Test(expected = ClassNotFoundException.class)
+  public void unexpectedClassNotAwaited() throws Exception {
+    underTest.loadClass("Other");
+  }
+
+  @Test(expected = ClassNotFoundException.class)
+  public void missingClassAfterComplete() throws Exception {
+    underTest.complete();
+    underTest.loadClass("Foo");
+  }
+
+  @Test
+  public void completeReleasesWaiting() throws Exception {
+    Future<Class<?>> future = loadInBackground("Foo");
+    Thread.sleep(100);
+    underTest.complete();
+
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail();
+    }
+    catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(ClassNotFoundException.class));
+    }
+  }
+
+  @Test
+  public void firstDefinitionWins() throws Exception {
+    underTest.add(compile("class Foo { String first() { 'first' } }"));
+    underTest.add(compile("class Foo { String second() { 'second' } }"));
+
+    Class<?> type = underTest.loadClass("Foo");
+    assertThat(type.getMethod("first").invoke(type.newInstance()), is((Object) "first"));
+  }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyCodeSource;
+import org.codehaus.gmaven.adapter.ClasspathFiles;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ScriptClassCache}.
+ */
+public class ScriptClassCacheTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File directory;
+
+  private CompilerConfiguration cc;
+
+  private ScriptClassCache underTest;
+
+  /**
+   * Class-loader with files which are not exposed as URLs.
+   */
+  private static class FilesClassLoader
+      extends ClassLoader
+      implements ClasspathFiles
+  {
+    private final List<File> files;
+
+    private FilesClassLoader(final ClassLoader parent, final File... files) {
+      super(parent);
+      this.files = Arrays.asList(files);
+    }
+
+    @Override
+    public List<File> getFiles() {
+      return files;
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    cc = new CompilerConfiguration();
+    directory = temp.newFolder("cache");
+    underTest = new ScriptClassCache(directory, 1024 * 1024);
+  }
+
+  private static GroovyCodeSource source(final String text) {
+    return new GroovyCodeSource(text, "Sample.groovy", "/groovy/script");
+  }
+
+  private CompiledScript compile(final String text) {
+    GroovyClassLoader gcl = new GroovyClassLoader(getClass().getClassLoader());
+    return CompiledScript.compile(source(text), cc, gcl);
+  }
+
+  private File entry(final String key) {
+    return new File(directory, key + ".script");
+  }
+
+  @Test
+  public void hitAfterPut() throws Exception {
+    CompiledScript script = compile("return 1");
+    underTest.put("a", script);
+
+    CompiledScript cached = underTest.get("a");
+    assertThat(cached, notNullValue());
+    assertThat(cached.getMainClassName(), is(script.getMainClassName()));
+    assertThat(cached.getClasses().keySet(), is(script.getClasses().keySet()));
+    assertThat(Arrays.equals(cached.getClasses().get(script.getMainClassName()),
+        script.getClasses().get(script.getMainClassName())), is(true));
+  }
+
+  @Test
+  public void missForUnknownKey() {
+    assertThat(underTest.get("a"), nullValue());
+  }
+
+  @Test
+  public void keyIsStable() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    assertThat(underTest.key(source("return 1"), cc, classLoader),
+        is(underTest.key(source("return 1"), new CompilerConfiguration(), classLoader)));
+  }
+
+  @Test
+  public void keyChangesWithSource() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    assertThat(underTest.key(source("return 1"), cc, classLoader),
+        not(underTest.key(source("return 2"), cc, classLoader)));
+  }
+
+  @Test
+  public void keyChangesWithFileName() throws Exception {
+    File first = temp.newFile("First.groovy");
+    File second = temp.newFile("Second.groovy");
+    Files.write("return 1".getBytes(Charsets.UTF_8), first);
+    Files.write("return 1".getBytes(Charsets.UTF_8), second);
+    ClassLoader classLoader = getClass().getClassLoader();
+
+    assertThat(underTest.key(new GroovyCodeSource(first), cc, classLoader),
+        not(underTest.key(new GroovyCodeSource(second), cc, classLoader)));
+  }
+
+  @Test
+  public void keyIgnoresInlineName() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    assertThat(underTest.key(new GroovyCodeSource("return 1", "script1.groovy", "/groovy/script"), cc, classLoader),
+        is(underTest.key(new GroovyCodeSource("return 1", "script2.groovy", "/groovy/script"), cc, classLoader)));
+  }
+
+  @Test
+  public void keyChangesWithCompilerConfiguration() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String key = underTest.key(source("return 1"), cc, classLoader);
+
+    CompilerConfiguration indy = new CompilerConfiguration();
+    indy.getOptimizationOptions().put("indy", true);
+    assertThat(underTest.key(source("return 1"), indy, classLoader), not(key));
+  }
+
+  @Test
+  public void keyChangesWithClasspathUrls() throws Exception {
+    URL first = temp.newFolder("first").toURI().toURL();
+    URL second = temp.newFolder("second").toURI().toURL();
+    ClassLoader parent = getClass().getClassLoader();
+
+    assertThat(underTest.key(source("return 1"), cc, new URLClassLoader(new URL[]{first}, parent)),
+        not(underTest.key(source("return 1"), cc, new URLClassLoader(new URL[]{second}, parent))));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() throws Exception {
+    CompiledScript script = compile("return 1");
+    underTest.put("a", script);
+    long length = entry("a").length();
+
+    underTest = new ScriptClassCache(directory, length * 2 + length / 2);
+    underTest.put("b", script);
+
+    long now = System.currentTimeMillis();
+    assertThat(entry("a").setLastModified(now - 20000), is(true));
+    assertThat(entry("b").setLastModified(now - 10000), is(true));
+
+    // access makes "a" the most recently used
+    assertThat(underTest.get("a"), notNullValue());
+
+    underTest.put("c", script);
+
+    assertThat(underTest.get("b"), nullValue());
+    assertThat(underTest.get("a"), notNullValue());
+    assertThat(underTest.get("c"), notNullValue());
+  }
+
+  @Test
+  public void concurrentPutOfSameKey() throws Exception {
+    final CompiledScript script = compile("return 1");
+    final CountDownLatch start = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception {
+            start.await();
+            underTest.put("a", script);
+            return null;
+          }
+        }));
+      }
+      start.countDown();
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(underTest.get("a"), notNullValue());
+    // only the entry remains; no temporary files
+    assertThat(directory.listFiles(), arrayWithSize(1));
+  }
+
+  @Test
+  public void corruptEntryDiscarded() throws Exception {
+    Files.write("not a compiled script".getBytes(Charsets.UTF_8), entry("a"));
+
+    assertThat(underTest.get("a"), nullValue());
+    assertThat(entry("a").exists(), is(false));
+  }
+
+  @Test
+  public void truncatedEntryDiscarded() throws Exception {
+    underTest.put("a", compile("return 1"));
+
+    RandomAccessFile file = new RandomAccessFile(entry("a"), "rw");
+    try {
+      file.setLength(file.length() / 2);
+    }
+    finally {
+      file.close();
+    }
+
+    assertThat(underTest.get("a"), nullValue());
+    assertThat(entry("a").exists(), is(false));
+  }
+
+  @Test
+  public void unwritableDirectoryIgnored() throws Exception {
+    // a file in place of the directory can not be created as directory, regardless of permissions
+    File file = temp.newFile("not-a-directory");
+    underTest = new ScriptClassCache(file, 1024 * 1024);
+
+    underTest.put("a", compile("return 1"));
+    assertThat(underTest.get("a"), nullValue());
+  }
+
+  @Test
+  public void missWhenClasspathFileChanges() throws Exception {
+    File jar = temp.newFile("dependency.jar");
+    Files.write("version 1".getBytes(Charsets.UTF_8), jar);
+    ClassLoader classLoader = new FilesClassLoader(getClass().getClassLoader(), jar);
+
+    String key = underTest.key(source("return 1"), cc, classLoader);
+    underTest.put(key, compile("return 1"));
+    assertThat(underTest.key(source("return 1"), cc, classLoader), is(key));
+    assertThat(underTest.get(key), notNullValue());
+
+    Files.write("version 2; upgraded".getBytes(Charsets.UTF_8), jar);
+
+    // changed jars are loaded by a new realm
+    ClassLoader upgraded = new FilesClassLoader(getClass().getClassLoader(), jar);
+    String changed = underTest.key(source("return 1"), cc, upgraded);
+    assertThat(changed, not(key));
+    assertThat(underTest.get(changed), nullValue());
+  }
+
+  @Test
+  public void classpathFingerprintedOncePerClassLoader() throws Exception {
+    File jar = temp.newFile("dependency.jar");
+    Files.write("version 1".getBytes(Charsets.UTF_8), jar);
+    ClassLoader classLoader = new FilesClassLoader(getClass().getClassLoader(), jar);
+    String key = underTest.key(source("return 1"), cc, classLoader);
+
+    Files.write("version 2; upgraded".getBytes(Charsets.UTF_8), jar);
+    assertThat(underTest.key(source("return 1"), cc, classLoader), is(key));
+  }
+
+  @Test
+  public void keyIncludesAddedClasspathUrls() throws Exception {
+    URL first = temp.newFolder("first").toURI().toURL();
+    URL second = temp.newFolder("second").toURI().toURL();
+    GroovyClassLoader classLoader = new GroovyClassLoader(getClass().getClassLoader());
+    classLoader.addURL(first);
+    String key = underTest.key(source("return 1"), cc, classLoader);
+
+    classLoader.addURL(second);
+    assertThat(underTest.key(source("return 1"), cc, classLoader), not(key));
+  }
+
+  @Test
+  public void keyIncludesFingerprintedCustomizers() {
+    ClassLoader classLoader = getClass().getClassLoader();
+    String key = underTest.key(source("return 1"), cc, classLoader);
+
+    CompilerConfiguration compileStatic = new CompilerConfiguration();
+    compileStatic.addCompilationCustomizers(new CompileStaticCustomizer());
+    String compileStaticKey = underTest.key(source("return 1"), compileStatic, classLoader);
+    assertThat(compileStaticKey, notNullValue());
+    assertThat(compileStaticKey, not(key));
+  }
+
+  @Test
+  public void notCachedWithOtherCustomizers() {
+    CompilerConfiguration imports = new CompilerConfiguration();
+    imports.addCompilationCustomizers(new ImportCustomizer().addStarImports("java.util.concurrent"));
+    assertThat(underTest.key(source("return 1"), imports, getClass().getClassLoader()), nullValue());
+  }
+}
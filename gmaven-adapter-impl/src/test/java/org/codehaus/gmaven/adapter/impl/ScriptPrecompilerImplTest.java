@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.adapter.impl;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.codehaus.gmaven.adapter.ScriptPrecompiler.PrecompileHandle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ScriptPrecompilerImpl}.
+ */
+public class ScriptPrecompilerImplTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File source(final String path, final String text) throws Exception {
+    File file = new File(temp.getRoot(), path);
+    Files.createParentDirs(file);
+    Files.write(text.getBytes(Charsets.UTF_8), file);
+    return file;
+  }
+
+  @Test
+  public void dependentSourcesGrouped() throws Exception {
+    File a = source("a/A.groovy", "package a\nclass A { B b }");
+    File b = source("a/B.groovy", "package a\nclass B { }");
+    File c = source("C.groovy", "class C { }");
+    File d = source("D.groovy", "class D { E e }");
+    File e = source("E.groovy", "class E { F f }");
+    File f = source("F.groovy", "class F { }");
+
+    Map<String, File> sources = new LinkedHashMap<String, File>();
+    sources.put("a.A", a);
+    sources.put("a.B", b);
+    sources.put("C", c);
+    sources.put("D", d);
+    sources.put("E", e);
+    sources.put("F", f);
+
+    List<List<File>> groups = ScriptPrecompilerImpl.group(sources, "UTF-8");
+    assertThat(groups, is(Arrays.asList(
+        Arrays.asList(a, b),
+        Collections.singletonList(c),
+        Arrays.asList(d, e, f))));
+  }
+
+  @Test
+  public void largestGroupsPartitionedFirst() {
+    List<File> one = Collections.singletonList(new File("1"));
+    List<File> two = Arrays.asList(new File("2"), new File("2"));
+    List<File> three = Arrays.asList(new File("3"), new File("3"), new File("3"));
+
+    List<List<List<File>>> partitions = ScriptPrecompilerImpl.partition(Arrays.asList(one, three, two), 2);
+    assertThat(partitions.size(), is(2));
+    assertThat(partitions.get(0), is(Collections.singletonList(three)));
+    assertThat(partitions.get(1), is(Arrays.asList(two, one)));
+  }
+
+  @Test
+  public void partitionsLimitedByGroups() {
+    List<File> one = Collections.singletonList(new File("1"));
+    assertThat(ScriptPrecompilerImpl.partition(Collections.singletonList(one), 4).size(), is(1));
+  }
+
+  @Test
+  public void scriptpathSourcesPrecompiled() throws Exception {
+    source("scripts/a/A.groovy", "package a\nclass A { }");
+    source("scripts/B.groovy", "class B { }");
+
+    PrecompileHandle handle = new GroovyRuntimeImpl().createScriptPrecompiler()
+        .precompile(getClass().getClassLoader(), Collections.singletonList(new File(temp.getRoot(), "scripts")), null);
+    handle.await();
+
+    ClassLoader loader = handle.getClassLoader();
+    assertThat(loader.loadClass("a.A").getClassLoader(), sameInstance(loader));
+    assertThat(loader.loadClass("B").getClassLoader(), sameInstance(loader));
+    assertThat(loader.loadClass("B").getName(), is("B"));
+  }
+
+  @Test
+  public void dependentClassesDefinedOnce() throws Exception {
+    source("scripts/a/A.groovy", "package a\nclass A { B b }");
+    source("scripts/a/B.groovy", "package a\nclass B { C c }");
+    source("scripts/C.groovy", "class C { }");
+    source("scripts/D.groovy", "class D { C c }");
+
+    PrecompileHandle handle = new GroovyRuntimeImpl().createScriptPrecompiler()
+        .precompile(getClass().getClassLoader(), Collections.singletonList(new File(temp.getRoot(), "scripts")), null);
+    handle.await();
+
+    ClassLoader loader = handle.getClassLoader();
+    Class<?> c = loader.loadClass("C");
+    assertThat(c.getClassLoader(), sameInstance(loader));
+    assertThat(loader.loadClass("a.A").getDeclaredField("b").getType(), sameInstance((Class) loader.loadClass("a.B")));
+    assertThat(loader.loadClass("a.B").getDeclaredField("c").getType(), sameInstance((Class) c));
+    assertThat(loader.loadClass("D").getDeclaredField("c").getType(), sameInstance((Class) c));
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.codehaus.gmaven.plugin.util.ContainerHelper;
+import org.codehaus.gmaven.plugin.util.GroovyVersionHelper;
+import org.codehaus.gmaven.plugin.util.MavenVersionHelper;
+import org.codehaus.gmaven.plugin.util.PropertiesBuilder;
+import org.codehaus.gmaven.plugin.util.PropertiesSnapshotCache;
+import org.codehaus.gmaven.plugin.util.VersionHelper;
+
+/**
+ * Stand-in Maven model and component wiring for benchmarking mojos outside of Maven.
+ *
+ * Additional classpath is modelled with {@code provided} scope artifacts, which (unlike build output directories)
+ * allow runtime realms to be shared.
+ */
+public class BenchmarkFixture
+{
+  /**
+   * Size of classpath and property sets.
+   */
+  public enum Size
+  {
+    small(5, 20),
+    medium(50, 200),
+    large(250, 2000);
+
+    final int artifacts;
+
+    final int properties;
+
+    Size(final int artifacts, final int properties) {
+      this.artifacts = artifacts;
+      this.properties = properties;
+    }
+  }
+
+  private final File basedir;
+
+  private final MavenProject project;
+
+  private final MavenSession session;
+
+  private final RuntimeRealmPool runtimeRealmPool = new RuntimeRealmPool();
+
+  private final ScriptpathIndexCache scriptpathIndexCache = new ScriptpathIndexCache();
+
+  private final ParallelExecutorPool parallelExecutorPool = new ParallelExecutorPool();
+
+  private final VersionHelper versionHelper = new VersionHelper();
+
+  public BenchmarkFixture(final File basedir, final Size size) throws IOException {
+    this.basedir = basedir;
+    this.project = createProject(size);
+    this.session = createSession(size);
+  }
+
+  private MavenProject createProject(final Size size) throws IOException {
+    Model model = new Model();
+    model.setGroupId("benchmark");
+    model.setArtifactId("benchmark");
+    model.setVersion("1");
+
+    Properties props = model.getProperties();
+    for (int i = 0; i < size.properties; i++) {
+      // half of the properties require interpolation
+      props.setProperty("project.prop" + i, i % 2 == 0 ? "value" + i : "${project.prop" + (i - 1) + "}-" + i);
+    }
+
+    MavenProject project = new MavenProject(model);
+    project.setFile(new File(basedir, "pom.xml"));
+
+    File repository = new File(basedir, "repository");
+    if (!repository.isDirectory() && !repository.mkdirs()) {
+      throw new IOException("Failed to create: " + repository);
+    }
+
+    Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+    DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+    for (int i = 0; i < size.artifacts; i++) {
+      Artifact artifact = new DefaultArtifact("benchmark", "dependency" + i, "1", Artifact.SCOPE_PROVIDED, "jar", null,
+          handler);
+      artifact.setFile(createJar(new File(repository, "dependency" + i + ".jar"), "benchmark/dependency" + i));
+      artifacts.add(artifact);
+    }
+    project.setArtifacts(artifacts);
+
+    return project;
+  }
+
+  private static File createJar(final File file, final String packageName) throws IOException {
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(file));
+    try {
+      output.putNextEntry(new JarEntry(packageName + "/resource.txt"));
+      output.write(packageName.getBytes("UTF-8"));
+      output.closeEntry();
+    }
+    finally {
+      output.close();
+    }
+    return file;
+  }
+
+  @SuppressWarnings("deprecation")
+  private MavenSession createSession(final Size size) {
+    Properties systemProperties = new Properties();
+    systemProperties.putAll(System.getProperties());
+
+    Properties userProperties = new Properties();
+    for (int i = 0; i < size.properties / 10; i++) {
+      userProperties.setProperty("user.prop" + i, "value" + i);
+    }
+
+    MavenExecutionRequest request = new DefaultMavenExecutionRequest()
+        .setSystemProperties(systemProperties)
+        .setUserProperties(userProperties)
+        .setBaseDirectory(basedir);
+
+    return new MavenSession(null, request, new DefaultMavenExecutionResult(), project);
+  }
+
+  /**
+   * Create an {@link ExecuteMojo} wired as Maven would for given source.
+   */
+  public ExecuteMojo createExecuteMojo(final String source, final boolean shareRuntime) throws Exception {
+    ExecuteMojo mojo = new ExecuteMojo();
+
+    MojoDescriptor mojoDescriptor = new MojoDescriptor();
+    mojoDescriptor.setGoal("execute");
+
+    set(mojo, "pluginDescriptor", new PluginDescriptor());
+    set(mojo, "mojoExecution", new MojoExecution(mojoDescriptor));
+    set(mojo, "project", project);
+    set(mojo, "session", session);
+    set(mojo, "settings", new Settings());
+    set(mojo, "containerHelper", new ContainerHelper());
+    set(mojo, "versionHelper", versionHelper);
+    set(mojo, "mavenVersionHelper", new MavenVersionHelper(versionHelper));
+    set(mojo, "groovyVersionHelper", new GroovyVersionHelper(versionHelper));
+    set(mojo, "groovyRuntimeFactory", new GroovyRuntimeFactory());
+    set(mojo, "propertiesBuilder", new PropertiesBuilder(new PropertiesSnapshotCache()));
+    set(mojo, "runtimeRealmPool", runtimeRealmPool);
+    set(mojo, "scriptpathIndexCache", scriptpathIndexCache);
+    set(mojo, "parallelExecutorPool", parallelExecutorPool);
+    set(mojo, "classSourceFactory", new ClassSourceFactory());
+
+    // parameter defaults, as applied by Maven
+    set(mojo, "classpathScope", ClasspathScope.provided);
+    set(mojo, "scriptpath", new ArrayList<File>());
+    set(mojo, "shareRuntime", shareRuntime);
+    set(mojo, "debugInfo", true);
+    set(mojo, "source", source);
+
+    return mojo;
+  }
+
+  private static void set(final Object target, final String name, final Object value) throws Exception {
+    for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+      try {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+        return;
+      }
+      catch (NoSuchFieldException e) {
+        // try super-class
+      }
+    }
+    throw new NoSuchFieldException(name);
+  }
+
+  public void dispose() {
+    runtimeRealmPool.dispose();
+    parallelExecutorPool.dispose();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.io.Files;
+import org.codehaus.gmaven.adapter.LazyValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-execution overhead of {@link ExecuteMojo}; the full pipeline and each of its phases.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecuteMojoBenchmark
+{
+  private static final String SOURCE = "def total = 0\nfor (i in 1..100) { total += i }\nreturn total";
+
+  /**
+   * Stand-in project and session with a mojo wired to them.
+   */
+  @State(Scope.Thread)
+  public static class MojoState
+  {
+    @Param({"small", "medium", "large"})
+    public BenchmarkFixture.Size size;
+
+    @Param({"true", "false"})
+    public boolean shareRuntime;
+
+    private File basedir;
+
+    private BenchmarkFixture fixture;
+
+    ExecuteMojo mojo;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+      basedir = Files.createTempDir();
+      fixture = new BenchmarkFixture(basedir, size);
+      mojo = fixture.createExecuteMojo(SOURCE, shareRuntime);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      fixture.dispose();
+      delete(basedir);
+    }
+
+    private static void delete(final File file) {
+      File[] children = file.listFiles();
+      if (children != null) {
+        for (File child : children) {
+          delete(child);
+        }
+      }
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+    }
+  }
+
+  /**
+   * Mojo which is cleaned up after each invocation.
+   */
+  @State(Scope.Thread)
+  public static class CleanupAfter
+  {
+    ExecuteMojo mojo;
+
+    @Setup(Level.Trial)
+    public void setUp(final MojoState state) {
+      mojo = state.mojo;
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws Exception {
+      mojo.cleanup();
+    }
+  }
+
+  /**
+   * Mojo which is prepared before each invocation.
+   */
+  @State(Scope.Thread)
+  public static class PrepareBefore
+  {
+    ExecuteMojo mojo;
+
+    @Setup(Level.Invocation)
+    public void setUp(final MojoState state) throws Exception {
+      mojo = state.mojo;
+      mojo.prepare();
+    }
+  }
+
+  /**
+   * Mojo which is prepared for the whole iteration.
+   */
+  @State(Scope.Thread)
+  public static class Prepared
+  {
+    ExecuteMojo mojo;
+
+    @Setup(Level.Iteration)
+    public void setUp(final MojoState state) throws Exception {
+      mojo = state.mojo;
+      mojo.prepare();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception {
+      mojo.cleanup();
+    }
+  }
+
+  /**
+   * Full execution; prepare, run and cleanup.
+   */
+  @Benchmark
+  public void execute(final MojoState state) throws Exception {
+    state.mojo.execute();
+  }
+
+  @Benchmark
+  public void prepare(final CleanupAfter state) throws Exception {
+    state.mojo.prepare();
+  }
+
+  @Benchmark
+  public Map<String, Object> createContext(final Prepared state) {
+    return state.mojo.createContext();
+  }
+
+  /**
+   * Context creation including the lazily built {@code properties} variable.
+   */
+  @Benchmark
+  public Object createContextWithProperties(final Prepared state) throws Exception {
+    return ((LazyValue) state.mojo.createContext().get("properties")).get();
+  }
+
+  /**
+   * Script execution; context creation and {@link org.codehaus.gmaven.adapter.ScriptExecutor#execute}.
+   */
+  @Benchmark
+  public void run(final Prepared state) throws Exception {
+    state.mojo.run();
+  }
+
+  @Benchmark
+  public void cleanup(final PrepareBefore state) throws Exception {
+    state.mojo.cleanup();
+  }
+}
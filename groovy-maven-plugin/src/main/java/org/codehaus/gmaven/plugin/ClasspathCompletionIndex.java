@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.codehaus.gmaven.adapter.CompletionIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link CompletionIndex} of the packages and top-level classes of a class path.
+ *
+ * The index of the jars is persisted, keyed by a fingerprint of their paths, sizes and modification times, so jars
+ * are only opened again when they change.  Directories, such as {@code target/classes}, are walked each time.
+ *
+ * @since 2.2.0
+ */
+public class ClasspathCompletionIndex
+    implements CompletionIndex
+{
+  private static final Logger log = LoggerFactory.getLogger(ClasspathCompletionIndex.class);
+
+  private static final String CLASS = ".class";
+
+  private static final String SUFFIX = ".idx.gz";
+
+  /**
+   * Persisted indexes unused for this long are removed.
+   */
+  private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+  /**
+   * Simple names of sub-packages and classes by package name; the root package is empty.
+   */
+  private final Map<String, SortedSet<String>> contents = new HashMap<String, SortedSet<String>>();
+
+  @Override
+  public Set<String> getContents(final String packageName) {
+    checkNotNull(packageName);
+    SortedSet<String> names = contents.get(packageName);
+    if (names == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
+  public int size() {
+    return contents.size();
+  }
+
+  /**
+   * Load the index of the given class path; the index of its jars is read from, or stored to, the given directory.
+   */
+  public static ClasspathCompletionIndex load(final File directory, final List<File> classpath) throws IOException {
+    checkNotNull(directory);
+    checkNotNull(classpath);
+
+    List<File> jars = new ArrayList<File>();
+    List<File> directories = new ArrayList<File>();
+    for (File file : classpath) {
+      if (file.isFile()) {
+        jars.add(file);
+      }
+      else if (file.isDirectory()) {
+        directories.add(file);
+      }
+    }
+
+    ClasspathCompletionIndex index = new ClasspathCompletionIndex();
+    if (!jars.isEmpty()) {
+      File file = new File(directory, fingerprint(jars) + SUFFIX);
+      if (!index.read(file)) {
+        for (File jar : jars) {
+          index.addJar(jar);
+        }
+        index.write(file);
+        evict(directory);
+      }
+    }
+    for (File dir : directories) {
+      index.addDirectory(dir, "");
+    }
+    log.debug("Indexed {} packages", index.size());
+    return index;
+  }
+
+  /**
+   * Load the index on a background thread; completion waits for it as needed.  An index which fails to load is empty.
+   */
+  public static CompletionIndex loadInBackground(final File directory, final List<File> classpath) {
+    checkNotNull(directory);
+    checkNotNull(classpath);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("gmaven-completion-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      final Future<ClasspathCompletionIndex> index = executor.submit(new Callable<ClasspathCompletionIndex>()
+      {
+        @Override
+        public ClasspathCompletionIndex call() throws Exception {
+          try {
+            return load(directory, classpath);
+          }
+          catch (Exception e) {
+            log.warn("Failed to index classpath for completion", e);
+            return new ClasspathCompletionIndex();
+          }
+        }
+      });
+
+      return new CompletionIndex()
+      {
+        @Override
+        public Set<String> getContents(final String packageName) {
+          return Futures.getUnchecked(index).getContents(packageName);
+        }
+      };
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Hash of the paths, sizes and modification times of the given files.
+   */
+  private static String fingerprint(final List<File> files) {
+    Hasher hasher = Hashing.sha1().newHasher();
+    for (File file : files) {
+      hasher.putString(file.getAbsolutePath(), Charsets.UTF_8)
+          .putLong(file.length())
+          .putLong(file.lastModified());
+    }
+    return hasher.hash().toString();
+  }
+
+  private void addJar(final File file) throws IOException {
+    JarFile jar = new JarFile(file);
+    try {
+      Enumeration<JarEntry> entries = jar.entries();
+      while (entries.hasMoreElements()) {
+        addEntry(entries.nextElement().getName());
+      }
+    }
+    finally {
+      jar.close();
+    }
+  }
+
+  private void addDirectory(final File dir, final String prefix) {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      if (child.isDirectory()) {
+        addDirectory(child, prefix + child.getName() + "/");
+      }
+      else {
+        addEntry(prefix + child.getName());
+      }
+    }
+  }
+
+  /**
+   * Add a top-level class and its packages; other entries are ignored.
+   */
+  private void addEntry(final String name) {
+    if (!name.endsWith(CLASS) || name.indexOf('$') != -1 || name.startsWith("META-INF/")) {
+      return;
+    }
+    String path = name.substring(0, name.length() - CLASS.length());
+    if (path.endsWith("package-info") || path.endsWith("module-info")) {
+      return;
+    }
+
+    String parent = "";
+    for (String segment : Splitter.on('/').split(path)) {
+      add(parent, segment);
+      parent = parent.isEmpty() ? segment : parent + "." + segment;
+    }
+  }
+
+  private void add(final String packageName, final String name) {
+    SortedSet<String> names = contents.get(packageName);
+    if (names == null) {
+      names = new TreeSet<String>();
+      contents.put(packageName, names);
+    }
+    names.add(name);
+  }
+
+  /**
+   * Read a persisted index; false if missing or unreadable.
+   */
+  private boolean read(final File file) {
+    if (!file.isFile()) {
+      return false;
+    }
+    try {
+      BufferedReader reader = new BufferedReader(
+          new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), Charsets.UTF_8));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          int i = line.indexOf('\t');
+          if (i != -1) {
+            for (String name : Splitter.on(' ').omitEmptyStrings().split(line.substring(i + 1))) {
+              add(line.substring(0, i), name);
+            }
+          }
+        }
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (IOException e) {
+      log.warn("Failed to read completion index: {}", file, e);
+      contents.clear();
+      return false;
+    }
+
+    // mark as used
+    if (!file.setLastModified(System.currentTimeMillis())) {
+      log.debug("Unable to touch: {}", file);
+    }
+    log.debug("Read completion index: {}", file);
+    return true;
+  }
+
+  private void write(final File file) {
+    try {
+      File dir = file.getParentFile();
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        throw new IOException("Failed to create directory: " + dir);
+      }
+      // write to a temporary file first; concurrent builds may share the directory
+      File temp = File.createTempFile(file.getName(), ".tmp", dir);
+      Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(temp)), Charsets.UTF_8);
+      try {
+        for (Entry<String, SortedSet<String>> entry : contents.entrySet()) {
+          writer.write(entry.getKey());
+          writer.write('\t');
+          writer.write(Joiner.on(' ').join(entry.getValue()));
+          writer.write('\n');
+        }
+      }
+      finally {
+        writer.close();
+      }
+      if (!temp.renameTo(file)) {
+        file.delete();
+        if (!temp.renameTo(file)) {
+          temp.delete();
+          throw new IOException("Failed to rename: " + temp + " to: " + file);
+        }
+      }
+      log.debug("Wrote completion index: {}", file);
+    }
+    catch (IOException e) {
+      log.warn("Failed to write completion index: {}", file, e);
+    }
+  }
+
+  /**
+   * Remove persisted indexes unused for {@link #MAX_AGE_MILLIS}.
+   */
+  private static void evict(final File directory) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    long expired = System.currentTimeMillis() - MAX_AGE_MILLIS;
+    for (File file : files) {
+      if (file.getName().endsWith(SUFFIX) && file.lastModified() < expired) {
+        log.debug("Removing unused completion index: {}", file);
+        if (!file.delete()) {
+          log.debug("Unable to remove: {}", file);
+        }
+      }
+    }
+  }
+}
@@ -15,16 +15,23 @@
  */
 package org.codehaus.gmaven.plugin;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.codehaus.gmaven.adapter.ConsoleWindow;
+import org.codehaus.gmaven.adapter.ConsoleWindow.Environment;
 import org.codehaus.gmaven.adapter.ConsoleWindow.WindowHandle;
+import org.codehaus.gmaven.adapter.GroovyRuntime;
 import org.codehaus.gmaven.adapter.ResourceLoader;
 
-import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
-
 /**
  * Open a Groovy console window.
  *
@@ -33,20 +40,107 @@ import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
  *
  * @since 2.0
  */
-@Mojo(name = "console", requiresProject = false, requiresDependencyResolution = TEST, aggregator = true)
+@Mojo(name = "console", requiresProject = false, aggregator = true)
 public class ConsoleMojo
     extends RuntimeMojoSupport
 {
   // TODO: Expose console options
 
+  @Component
+  private GroovyRuntimeFactory groovyRuntimeFactory;
+
+  /**
+   * Environment of the console; prepared in the background while the window opens.
+   */
+  private Future<Environment> environment;
+
+  /**
+   * Runtime of the console window; independent of the runtime realm, which is still being prepared.
+   */
+  private GroovyRuntime consoleRuntime;
+
   @Override
-  protected void run() throws Exception {
+  protected void prepare() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("gmaven-console-prepare-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      environment = executor.submit(new Callable<Environment>()
+      {
+        @Override
+        public Environment call() throws Exception {
+          ConsoleMojo.super.prepare();
+          return createEnvironment();
+        }
+      });
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    // Groovy is provided by the plugin; its console does not need the additional classpath
+    consoleRuntime = groovyRuntimeFactory.create(getClass().getClassLoader());
+  }
+
+  private Environment createEnvironment() throws Exception {
+    final ClassLoader classLoader = getScriptClassLoader();
     final ResourceLoader resourceLoader = new MojoResourceLoader(getRuntimeRealm(), getScriptpath());
     final Map<String, Object> context = createContext();
-    final Map<String, Object> options = new HashMap<String, Object>();
-    final ConsoleWindow console = getRuntime().createConsoleWindow();
 
-    WindowHandle handle = console.open(getRuntimeRealm(), resourceLoader, context, options);
+    return new Environment()
+    {
+      @Override
+      public ClassLoader getClassLoader() {
+        return classLoader;
+      }
+
+      @Override
+      public ResourceLoader getResourceLoader() {
+        return resourceLoader;
+      }
+
+      @Override
+      public Map<String, Object> getContext() {
+        return context;
+      }
+    };
+  }
+
+  @Override
+  protected void run() throws Exception {
+    final Map<String, Object> options = createOptions();
+    final ConsoleWindow console = consoleRuntime.createConsoleWindow();
+
+    WindowHandle handle = console.open(environment, options);
     handle.await();
+
+    // report failure to prepare, which scripts of the console have also reported
+    try {
+      environment.get();
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause(), Exception.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  @Override
+  protected void cleanup() throws Exception {
+    if (environment != null) {
+      // the runtime realm is disposed once prepared
+      try {
+        environment.get();
+      }
+      catch (ExecutionException e) {
+        log.trace("Prepare failed", e);
+      }
+      environment = null;
+    }
+    if (consoleRuntime != null) {
+      consoleRuntime.cleanup();
+      consoleRuntime = null;
+    }
+    super.cleanup();
   }
 }
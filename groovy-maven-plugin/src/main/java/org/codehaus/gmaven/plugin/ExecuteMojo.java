@@ -15,19 +15,43 @@
  */
 package org.codehaus.gmaven.plugin;
 
-import java.util.HashMap;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.maven.model.FileSet;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.gmaven.adapter.ClassSource;
+import org.codehaus.gmaven.adapter.PhaseRecorder.Phase;
 import org.codehaus.gmaven.adapter.ResourceLoader;
 import org.codehaus.gmaven.adapter.ScriptExecutor;
+import org.codehaus.gmaven.plugin.util.FileSetScanner;
 import org.codehaus.gmaven.plugin.util.PropertiesBuilder;
 
-import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
-
 /**
  * Execute a Groovy script.
  *
@@ -36,7 +60,7 @@ import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
  *
  * @since 2.0
  */
-@Mojo(name = "execute", requiresProject = false, threadSafe = true, requiresDependencyResolution = TEST)
+@Mojo(name = "execute", requiresProject = false, threadSafe = true)
 public class ExecuteMojo
     extends RuntimeMojoSupport
 {
@@ -60,10 +84,49 @@ public class ExecuteMojo
    *
    * <br/>
    * Scripts which make use of GString expressions should seriously consider using a File or URL source instead.
+   *
+   * <br/>
+   * Either {@code source} or {@code sources} is required.
    */
-  @Parameter(property = "source", required = true)
+  @Parameter(property = "source")
   private String source;
 
+  /**
+   * Sources of scripts to execute in order, after {@code source} if configured.
+   *
+   * <br/>
+   * The scripts share one runtime realm, class-loader and binding; classes of each script are visible to the scripts
+   * after it.  Supports the same content flavors as {@code source}.
+   *
+   * @since 2.2.0
+   */
+  @Parameter
+  private List<String> sources;
+
+  /**
+   * Execute the scripts of {@code sources} concurrently instead of in order.
+   *
+   * <br/>
+   * Each script has its own binding and class-loader, so the scripts must not depend on each other.  All scripts
+   * complete before the execution fails; failures of all scripts are reported together.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.execute.parallel", defaultValue = "false")
+  private boolean parallel;
+
+  /**
+   * Maximum number of scripts executed concurrently when {@code parallel}.
+   *
+   * <br/>
+   * Defaults to the number of threads of the Maven build ({@code -T}), or the number of processors if the build is not
+   * parallel.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.execute.threads", defaultValue = "0")
+  private int threads;
+
   /**
    * Execution property overrides.
    *
@@ -82,6 +145,79 @@ public class ExecuteMojo
   @Parameter
   private Map<String, String> defaults;
 
+  /**
+   * Enable the persistent compiled script class cache.
+   *
+   * <br/>
+   * Unchanged scripts load previously compiled classes instead of compiling again.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.classCache", defaultValue = "false")
+  private boolean classCache;
+
+  /**
+   * Directory of the persistent compiled script class cache.
+   *
+   * <br/>
+   * May be shared by several builds.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.classCache.directory", defaultValue = "${settings.localRepository}/.cache/gmaven/classes")
+  private File classCacheDirectory;
+
+  /**
+   * Maximum size of the persistent compiled script class cache, in megabytes.
+   *
+   * <br/>
+   * When exceeded, least-recently-used entries are evicted.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.classCache.maxSize", defaultValue = "64")
+  private int classCacheMaxSize;
+
+  /**
+   * Compile scripts with invokedynamic support.
+   *
+   * <br/>
+   * Requires Java 7+.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.compiler.indy", defaultValue = "false")
+  private boolean indy;
+
+  /**
+   * Compile scripts and scriptpath classes as if annotated with {@code @CompileStatic}.
+   *
+   * <br/>
+   * Scripts must be statically type-checkable; dynamic features such as binding variables need explicit types.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.compiler.compileStatic", defaultValue = "false")
+  private boolean compileStatic;
+
+  /**
+   * Target bytecode level of compiled scripts, ie. {@code 1.7}.  Defaults to the Groovy compiler default.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.compiler.targetBytecode")
+  private String targetBytecode;
+
+  /**
+   * Include debug and line number information in compiled scripts.
+   *
+   * <br/>
+   * When disabled, stack traces of script failures do not include line numbers.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.compiler.debugInfo", defaultValue = "true")
+  private boolean debugInfo;
 
   /**
    * Skip the execution of this mojo.
@@ -91,20 +227,380 @@ public class ExecuteMojo
   @Parameter(property = "gmaven.execute.skip", defaultValue = "false")
   private boolean skip;
 
+  /**
+   * Files read by the script.
+   *
+   * <br/>
+   * Changes to these files cause the script to execute again; see {@code outputs}.
+   *
+   * @since 2.2.0
+   */
+  @Parameter
+  private List<FileSet> inputs;
+
+  /**
+   * Files produced by the script.
+   *
+   * <br/>
+   * When configured, the script is only executed if the outputs are missing or modified, or if the script, its
+   * properties, classpath, scriptpath or {@code inputs} have changed since the last execution.
+   *
+   * @since 2.2.0
+   */
+  @Parameter
+  private List<FileSet> outputs;
+
+  /**
+   * Execute the script even if its outputs are up to date.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.execute.force", defaultValue = "false")
+  private boolean force;
+
+  /**
+   * Directory where the state of incremental executions is recorded.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.execute.stateDirectory", defaultValue = "${project.build.directory}/gmaven/state")
+  private File stateDirectory;
+
+  /**
+   * Maximum wall-clock time of the execution, in seconds.
+   *
+   * <br/>
+   * When exceeded, the script is interrupted and the execution fails.  Applies to all scripts of {@code sources}
+   * together, or to each script when {@code parallel}.  Zero is unlimited.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.execute.timeout", defaultValue = "0")
+  private int timeout;
+
+  /**
+   * Maximum CPU time of the thread executing the script, in seconds.
+   *
+   * <br/>
+   * Threads started by the script are not measured.  Zero is unlimited.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.execute.cpuBudget", defaultValue = "0")
+  private int cpuBudget;
+
+  /**
+   * Maximum memory allocated by the thread executing the script, in megabytes.
+   *
+   * <br/>
+   * Measures allocation, not retained memory; requires a JVM which measures thread allocation.  Threads started by the
+   * script are not measured.  Zero is unlimited.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.execute.allocationBudget", defaultValue = "0")
+  private int allocationBudget;
+
   @Override
   protected void run() throws Exception {
-    final ClassSource classSource = classSourceFactory.create(source);
-    log.debug("Class source: {}", classSource);
+    List<String> scripts = getScripts();
+    final List<ClassSource> classSources = new ArrayList<ClassSource>(scripts.size());
+    for (String script : scripts) {
+      ClassSource classSource = classSourceFactory.create(script);
+      log.debug("Class source: {}", classSource);
+      classSources.add(classSource);
+    }
+
+    Phase event = FlightEvents.get().startScriptExecution(getProject().getArtifactId(),
+        getMojoExecution().getExecutionId(), describe(classSources));
+    try {
+      if (outputs != null && !outputs.isEmpty()) {
+        runIncremental(scripts, classSources);
+      }
+      else {
+        execute(classSources);
+      }
+    }
+    finally {
+      event.stop();
+    }
+  }
+
+  /**
+   * Returns the configured script sources, in order of execution.
+   */
+  private List<String> getScripts() throws MojoExecutionException {
+    List<String> scripts = new ArrayList<String>();
+    if (source != null) {
+      scripts.add(source);
+    }
+    if (sources != null) {
+      scripts.addAll(sources);
+    }
+    if (scripts.isEmpty()) {
+      throw new MojoExecutionException("Missing source or sources");
+    }
+    return scripts;
+  }
+
+  /**
+   * Execute unless the outputs are up to date; records the state of successful executions.
+   */
+  private void runIncremental(final List<String> scripts, final List<ClassSource> classSources) throws Exception {
+    IncrementalState state = new IncrementalState(
+        new File(stateDirectory, getMojoExecution().getExecutionId() + ".properties"));
+    String fingerprint = fingerprint(scripts, classSources);
+    log.debug("Fingerprint: {}", fingerprint);
 
-    final ResourceLoader resourceLoader = new MojoResourceLoader(getRuntimeRealm(), classSource, getScriptpath());
+    if (!force && state.isUpToDate(fingerprint, scan(outputs))) {
+      getLog().info("Skipping; outputs are up to date");
+      return;
+    }
+
+    state.clear();
+    execute(classSources);
+    state.record(fingerprint, scan(outputs));
+  }
+
+  private void execute(final List<ClassSource> classSources) throws Exception {
+    if (parallel && classSources.size() > 1) {
+      executeParallel(classSources);
+      return;
+    }
+
+    // scripts next to the first script file can be imported
+    final ResourceLoader resourceLoader =
+        new MojoResourceLoader(getRuntimeRealm(), classSources.get(0), getScriptpathIndex());
     final Map<String, Object> context = createContext();
-    final Map<String, Object> options = new HashMap<String, Object>();
+    final Map<String, Object> options = createOptions();
     final ScriptExecutor executor = getRuntime().createScriptExecutor();
+    final ClassLoader classLoader = getScriptClassLoader();
 
-    Object result = executor.execute(classSource, getRuntimeRealm(), resourceLoader, context, options);
+    String name = describe(classSources);
+    Object result = createWatchdog().call(name, new Callable<Object>()
+    {
+      @Override
+      public Object call() throws Exception {
+        return executor.execute(classSources, classLoader, resourceLoader, context, options);
+      }
+    });
     log.debug("Result: {}", result);
   }
 
+  /**
+   * Execute each script with its own binding on a bounded thread pool; failures are reported once all completed.
+   */
+  private void executeParallel(final List<ClassSource> classSources) throws Exception {
+    int poolSize = Math.min(classSources.size(), getParallelThreads());
+    log.debug("Executing {} scripts with {} threads", classSources.size(), poolSize);
+
+    ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder()
+        .setNameFormat("gmaven-script-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>(classSources.size());
+      for (final ClassSource classSource : classSources) {
+        futures.add(executor.submit(new Callable<Object>()
+        {
+          @Override
+          public Object call() throws Exception {
+            execute(Collections.singletonList(classSource));
+            return null;
+          }
+        }));
+      }
+
+      List<String> names = new ArrayList<String>(classSources.size());
+      for (ClassSource classSource : classSources) {
+        names.add(describe(classSource));
+      }
+      awaitAll(names, futures);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Wait for all scripts to complete; a single failure is rethrown, several are reported by one exception.
+   */
+  @VisibleForTesting
+  void awaitAll(final List<String> names, final List<? extends Future<?>> futures) throws Exception {
+    List<Throwable> failures = new ArrayList<Throwable>();
+    List<String> messages = new ArrayList<String>();
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get();
+      }
+      catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        String message = failureMessage(cause);
+        log.error("Script failed: {}; {}", names.get(i), message);
+        failures.add(cause);
+        messages.add(message);
+      }
+    }
+
+    if (failures.size() == 1) {
+      Throwables.propagateIfPossible(failures.get(0), Exception.class);
+      throw Throwables.propagate(failures.get(0));
+    }
+    if (!failures.isEmpty()) {
+      throw new MojoExecutionException(String.format("%d of %d scripts failed: %s",
+          failures.size(), futures.size(), Joiner.on("; ").join(messages)), failures.get(0));
+    }
+  }
+
+  private ExecutionWatchdog createWatchdog() {
+    return new ExecutionWatchdog(
+        TimeUnit.SECONDS.toMillis(timeout),
+        TimeUnit.SECONDS.toMillis(cpuBudget),
+        allocationBudget * 1024L * 1024L);
+  }
+
+  private int getParallelThreads() {
+    if (threads > 0) {
+      return threads;
+    }
+    return getThreadBudget();
+  }
+
+  private static String describe(final ClassSource classSource) {
+    if (classSource.getFile() != null) {
+      return classSource.getFile().getPath();
+    }
+    if (classSource.getUrl() != null) {
+      return classSource.getUrl().toExternalForm();
+    }
+    return classSource.getInline().getName();
+  }
+
+  private static String describe(final List<ClassSource> classSources) {
+    if (classSources.size() == 1) {
+      return describe(classSources.get(0));
+    }
+    return classSources.size() + " scripts";
+  }
+
+  /**
+   * Message of a script failure; the message given to {@code fail} if the script failed with it.
+   */
+  @VisibleForTesting
+  static String failureMessage(final Throwable failure) {
+    for (Throwable cause : Throwables.getCausalChain(failure)) {
+      if (cause instanceof MojoExecutionException) {
+        return cause.getMessage();
+      }
+    }
+    return failure.toString();
+  }
+
+  private List<File> scan(final List<FileSet> fileSets) {
+    FileSetScanner scanner = new FileSetScanner(getBasedir());
+    List<File> files = new ArrayList<File>();
+    for (FileSet fileSet : fileSets) {
+      files.addAll(scanner.scan(fileSet));
+    }
+    return files;
+  }
+
+  /**
+   * Fingerprint of everything which affects the execution: script, compiler options, properties, classpath,
+   * scriptpath sources and inputs.
+   */
+  private String fingerprint(final List<String> scripts, final List<ClassSource> classSources) throws IOException {
+    Hasher hasher = Hashing.sha1().newHasher();
+
+    for (int i = 0; i < classSources.size(); i++) {
+      ClassSource classSource = classSources.get(i);
+      if (classSource.getFile() != null) {
+        hasher.putBytes(Files.toByteArray(classSource.getFile()));
+      }
+      else if (classSource.getUrl() != null) {
+        hasher.putBytes(Resources.toByteArray(classSource.getUrl()));
+      }
+      else {
+        putString(hasher, scripts.get(i));
+      }
+    }
+
+    for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(createOptions()).entrySet()) {
+      // none affects what a script produces
+      String key = entry.getKey();
+      if (!ScriptExecutor.PHASE_RECORDER.equals(key) && !ScriptExecutor.PARALLELISM.equals(key)
+          && !ScriptExecutor.PARALLEL_EXECUTOR.equals(key) && !ScriptExecutor.EVENT_LISTENER.equals(key)) {
+        putString(hasher, key + "=" + entry.getValue());
+      }
+    }
+
+    // system properties are left out; they include the environment, which differs between invocations
+    Set<String> keys = new TreeSet<String>();
+    keys.addAll(getProject().getProperties().stringPropertyNames());
+    keys.addAll(getSession().getUserProperties().stringPropertyNames());
+    if (defaults != null) {
+      keys.addAll(defaults.keySet());
+    }
+    if (properties != null) {
+      keys.addAll(properties.keySet());
+    }
+    Map<String, String> resolved = buildProperties();
+    for (String key : keys) {
+      putString(hasher, key + "=" + resolved.get(key));
+    }
+
+    FileSetScanner scanner = new FileSetScanner(getBasedir());
+    for (File file : getClasspath()) {
+      if (file.isDirectory()) {
+        FileSet fileSet = new FileSet();
+        fileSet.setDirectory(file.getPath());
+        putFiles(hasher, scanner.scan(fileSet));
+      }
+      else {
+        putFile(hasher, file);
+      }
+    }
+
+    putFiles(hasher, new TreeSet<File>(getScriptpathIndex().getSources().values()));
+
+    if (inputs != null) {
+      putFiles(hasher, scan(inputs));
+    }
+
+    return hasher.hash().toString();
+  }
+
+  private static void putString(final Hasher hasher, final String value) {
+    hasher.putString(value, Charsets.UTF_8).putByte((byte) 0);
+  }
+
+  private static void putFiles(final Hasher hasher, final Iterable<File> files) {
+    for (File file : files) {
+      putFile(hasher, file);
+    }
+  }
+
+  private static void putFile(final Hasher hasher, final File file) {
+    putString(hasher, file.getAbsolutePath());
+    hasher.putLong(file.length()).putLong(file.lastModified());
+  }
+
+  @Override
+  protected Map<String, Object> createOptions() {
+    Map<String, Object> options = super.createOptions();
+    options.put(ScriptExecutor.COMPILE_INDY, indy);
+    options.put(ScriptExecutor.COMPILE_STATIC, compileStatic);
+    options.put(ScriptExecutor.DEBUG_INFO, debugInfo);
+    if (targetBytecode != null) {
+      options.put(ScriptExecutor.TARGET_BYTECODE, targetBytecode);
+    }
+    if (classCache) {
+      options.put(ScriptExecutor.CLASS_CACHE_DIRECTORY, classCacheDirectory);
+      options.put(ScriptExecutor.CLASS_CACHE_MAX_SIZE, classCacheMaxSize * 1024L * 1024L);
+    }
+    return options;
+  }
+
   @Override
   protected void customizeProperties(final PropertiesBuilder builder) {
     builder.setProperties(properties)
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Executes a task within a wall-clock, CPU time and allocation budget.
+ *
+ * The task runs on its own thread, which is sampled periodically.  When a limit is exceeded the thread is
+ * interrupted, and the execution fails with the measurements.  A task ignoring the interrupt is abandoned after a
+ * grace period, so the build does not hang.  Only the task thread is measured; threads it starts are not.
+ *
+ * A limit of zero is unlimited.
+ *
+ * @since 2.2.0
+ */
+public class ExecutionWatchdog
+{
+  private static final long SAMPLE_MILLIS = 100;
+
+  private static final long GRACE_MILLIS = 5000;
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+  /**
+   * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} if available.
+   */
+  private static final Method allocatedBytesMethod = allocatedBytesMethod();
+
+  private static Method allocatedBytesMethod() {
+    try {
+      Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+      if (type.isInstance(threadBean)) {
+        Method method = type.getMethod("getThreadAllocatedBytes", long.class);
+        // probe; may be unsupported or disabled
+        if ((Long) method.invoke(threadBean, Thread.currentThread().getId()) >= 0) {
+          return method;
+        }
+      }
+    }
+    catch (Exception e) {
+      // ignore
+    }
+    return null;
+  }
+
+  @VisibleForTesting
+  static boolean isAllocationMeasured() {
+    return allocatedBytesMethod != null;
+  }
+
+  private static boolean isCpuTimeSupported() {
+    return threadBean.isThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+  }
+
+  private static long cpuTime(final long threadId) {
+    try {
+      return isCpuTimeSupported() ? threadBean.getThreadCpuTime(threadId) : -1;
+    }
+    catch (UnsupportedOperationException e) {
+      return -1;
+    }
+  }
+
+  private static long allocatedBytes(final long threadId) {
+    if (allocatedBytesMethod != null) {
+      try {
+        return (Long) allocatedBytesMethod.invoke(threadBean, threadId);
+      }
+      catch (Exception e) {
+        // ignore
+      }
+    }
+    return -1;
+  }
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final long timeoutMillis;
+
+  private final long cpuBudgetMillis;
+
+  private final long allocationBudgetBytes;
+
+  private final long graceMillis;
+
+  public ExecutionWatchdog(final long timeoutMillis, final long cpuBudgetMillis, final long allocationBudgetBytes) {
+    this(timeoutMillis, cpuBudgetMillis, allocationBudgetBytes, GRACE_MILLIS);
+  }
+
+  @VisibleForTesting
+  ExecutionWatchdog(final long timeoutMillis,
+                    final long cpuBudgetMillis,
+                    final long allocationBudgetBytes,
+                    final long graceMillis)
+  {
+    checkArgument(timeoutMillis >= 0, "Invalid timeout: %s", timeoutMillis);
+    checkArgument(cpuBudgetMillis >= 0, "Invalid CPU budget: %s", cpuBudgetMillis);
+    checkArgument(allocationBudgetBytes >= 0, "Invalid allocation budget: %s", allocationBudgetBytes);
+    this.timeoutMillis = timeoutMillis;
+    this.cpuBudgetMillis = cpuBudgetMillis;
+    this.allocationBudgetBytes = allocationBudgetBytes;
+    this.graceMillis = graceMillis;
+
+    if (cpuBudgetMillis > 0 && !isCpuTimeSupported()) {
+      log.warn("Thread CPU time is not supported by this JVM; ignoring CPU budget");
+    }
+    if (allocationBudgetBytes > 0 && !isAllocationMeasured()) {
+      log.warn("Thread allocation is not measured by this JVM; ignoring allocation budget");
+    }
+  }
+
+  /**
+   * True if any limit is configured.
+   */
+  public boolean isLimited() {
+    return timeoutMillis > 0 || cpuBudgetMillis > 0 || allocationBudgetBytes > 0;
+  }
+
+  /**
+   * Measurements of the task thread; counted from zero, as the thread is new and may not be measurable right after
+   * it has been started.
+   */
+  private class Usage
+  {
+    private final long threadId;
+
+    private final long startNanos = System.nanoTime();
+
+    long elapsedMillis;
+
+    long cpuMillis = -1;
+
+    long allocatedBytes = -1;
+
+    Usage(final Thread thread) {
+      this.threadId = thread.getId();
+    }
+
+    void sample() {
+      elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      long cpu = cpuTime(threadId);
+      if (cpu >= 0) {
+        cpuMillis = TimeUnit.NANOSECONDS.toMillis(cpu);
+      }
+      long allocated = allocatedBytes(threadId);
+      if (allocated >= 0) {
+        allocatedBytes = allocated;
+      }
+    }
+
+    /**
+     * Returns the exceeded limit; null if within budget.
+     */
+    @Nullable
+    String exceeded() {
+      if (timeoutMillis > 0 && elapsedMillis > timeoutMillis) {
+        return String.format("timeout of %d ms", timeoutMillis);
+      }
+      if (cpuBudgetMillis > 0 && cpuMillis > cpuBudgetMillis) {
+        return String.format("CPU budget of %d ms", cpuBudgetMillis);
+      }
+      if (allocationBudgetBytes > 0 && allocatedBytes > allocationBudgetBytes) {
+        return String.format("allocation budget of %d bytes", allocationBudgetBytes);
+      }
+      return null;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder buff = new StringBuilder();
+      buff.append("elapsed: ").append(elapsedMillis).append(" ms");
+      if (cpuMillis >= 0) {
+        buff.append(", CPU: ").append(cpuMillis).append(" ms");
+      }
+      if (allocatedBytes >= 0) {
+        buff.append(", allocated: ").append(allocatedBytes).append(" bytes");
+      }
+      return buff.toString();
+    }
+  }
+
+  /**
+   * Call the task within the budget.
+   *
+   * @throws MojoExecutionException The task exceeded a limit.
+   */
+  @Nullable
+  public <T> T call(final String name, final Callable<T> task) throws Exception {
+    checkNotNull(name);
+    checkNotNull(task);
+
+    if (!isLimited()) {
+      return task.call();
+    }
+
+    final Object[] result = new Object[1];
+    final Throwable[] failure = new Throwable[1];
+    Thread thread = new Thread(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          result[0] = task.call();
+        }
+        catch (Throwable e) {
+          failure[0] = e;
+        }
+      }
+    }, "gmaven-watchdog-" + name);
+    thread.setDaemon(true);
+    thread.setContextClassLoader(Thread.currentThread().getContextClassLoader());
+
+    thread.start();
+    Usage usage = new Usage(thread);
+    String exceeded = null;
+    try {
+      while (thread.isAlive()) {
+        thread.join(SAMPLE_MILLIS);
+        usage.sample();
+        exceeded = usage.exceeded();
+        if (exceeded != null && thread.isAlive()) {
+          break;
+        }
+        exceeded = null;
+      }
+    }
+    catch (InterruptedException e) {
+      thread.interrupt();
+      throw e;
+    }
+
+    if (exceeded != null) {
+      log.debug("Exceeded {}; interrupting: {}", exceeded, thread);
+      thread.interrupt();
+      thread.join(graceMillis);
+      if (thread.isAlive()) {
+        log.warn("Script did not stop within {} ms after interrupt; abandoning thread: {}", graceMillis, thread);
+      }
+      throw new MojoExecutionException(String.format("Script %s exceeded %s; %s", name, exceeded, usage));
+    }
+
+    log.debug("Script {} usage; {}", name, usage);
+    if (failure[0] != null) {
+      Throwables.propagateIfPossible(failure[0], Exception.class);
+      throw Throwables.propagate(failure[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    T value = (T) result[0];
+    return value;
+  }
+}
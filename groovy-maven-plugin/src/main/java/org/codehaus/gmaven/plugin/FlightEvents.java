@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.net.URL;
+
+import javax.annotation.Nullable;
+
+import org.codehaus.gmaven.adapter.PhaseRecorder.Phase;
+import org.codehaus.gmaven.adapter.ScriptEventListener;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits Java Flight Recorder events of realm creation, resource lookup, binding construction, script compilation and
+ * script execution.
+ *
+ * Events are emitted on a JVM providing {@code jdk.jfr}, and only while a recording enables them; otherwise calls
+ * return right away.
+ *
+ * @since 2.2.0
+ */
+public abstract class FlightEvents
+    implements ScriptEventListener
+{
+  /**
+   * Phase which records nothing.
+   */
+  protected static final Phase NOOP_PHASE = new Phase()
+  {
+    @Override
+    public void stop() {
+      // empty
+    }
+  };
+
+  /**
+   * Lookup which records nothing.
+   */
+  protected static final Lookup NOOP_LOOKUP = new Lookup()
+  {
+    @Override
+    public URL stop(final @Nullable URL url, final String source) {
+      return url;
+    }
+  };
+
+  private static final FlightEvents INSTANCE = create();
+
+  private static FlightEvents create() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return new JfrFlightEvents();
+    }
+    catch (Throwable e) {
+      LoggerFactory.getLogger(FlightEvents.class).trace("Flight recorder not available", e);
+      return new FlightEvents()
+      {
+        @Override
+        public Phase startRealmCreation(final int classpathEntries) {
+          return NOOP_PHASE;
+        }
+
+        @Override
+        public Phase startScriptExecution(final String module, final String executionId, final String script) {
+          return NOOP_PHASE;
+        }
+
+        @Override
+        public Lookup startLookup(final String name) {
+          return NOOP_LOOKUP;
+        }
+
+        @Override
+        public void bindingCreated(final int variables, final int lazyVariables) {
+          // empty
+        }
+
+        @Override
+        public void scriptCompiled(final String name, final int classCount, final long durationNanos) {
+          // empty
+        }
+      };
+    }
+  }
+
+  public static FlightEvents get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Resource lookup in progress.
+   */
+  public interface Lookup
+  {
+    /**
+     * Complete the lookup; returns the given result.
+     *
+     * @param source Where the resource was found, or last looked for if missing.
+     */
+    @Nullable
+    URL stop(@Nullable URL url, String source);
+  }
+
+  public abstract Phase startRealmCreation(int classpathEntries);
+
+  public abstract Phase startScriptExecution(String module, String executionId, String script);
+
+  public abstract Lookup startLookup(String name);
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Persistent state of an incremental execution.
+ *
+ * Records the fingerprint of the execution inputs and the state of the produced outputs.  An execution is up to date
+ * while its fingerprint is unchanged and its outputs exist unmodified.
+ *
+ * @since 2.2.0
+ */
+public class IncrementalState
+{
+  private static final String FINGERPRINT = "fingerprint";
+
+  private static final String OUTPUTS = "outputs";
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final File file;
+
+  public IncrementalState(final File file) {
+    this.file = checkNotNull(file);
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * True if the recorded state matches the given fingerprint and outputs.
+   */
+  public boolean isUpToDate(final String fingerprint, final List<File> outputs) {
+    checkNotNull(fingerprint);
+    checkNotNull(outputs);
+
+    if (outputs.isEmpty()) {
+      log.debug("No outputs; not up to date");
+      return false;
+    }
+
+    Properties state = load();
+    if (state == null) {
+      log.debug("No previous state: {}", file);
+      return false;
+    }
+    if (!fingerprint.equals(state.getProperty(FINGERPRINT))) {
+      log.debug("Fingerprint changed");
+      return false;
+    }
+    if (!describe(outputs).equals(state.getProperty(OUTPUTS))) {
+      log.debug("Outputs changed");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Record the state of a successful execution.
+   */
+  public void record(final String fingerprint, final List<File> outputs) throws IOException {
+    checkNotNull(fingerprint);
+    checkNotNull(outputs);
+
+    Properties state = new Properties();
+    state.setProperty(FINGERPRINT, fingerprint);
+    state.setProperty(OUTPUTS, describe(outputs));
+
+    File dir = file.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Failed to create directory: " + dir);
+    }
+    OutputStream output = new FileOutputStream(file);
+    try {
+      state.store(output, null);
+    }
+    finally {
+      output.close();
+    }
+    log.debug("Recorded state: {}", file);
+  }
+
+  /**
+   * Forget any recorded state; the next execution will not be up to date.
+   */
+  public void clear() {
+    if (file.exists() && !file.delete()) {
+      log.warn("Failed to delete state: {}", file);
+    }
+  }
+
+  @Nullable
+  private Properties load() {
+    if (!file.isFile()) {
+      return null;
+    }
+    Properties state = new Properties();
+    try {
+      InputStream input = new FileInputStream(file);
+      try {
+        state.load(input);
+      }
+      finally {
+        input.close();
+      }
+    }
+    catch (IOException e) {
+      log.warn("Failed to read state: {}", file, e);
+      return null;
+    }
+    return state;
+  }
+
+  /**
+   * Hash of the paths, sizes and modification times of the given files.
+   */
+  private static String describe(final List<File> files) {
+    Hasher hasher = Hashing.sha1().newHasher();
+    for (File file : files) {
+      hasher.putString(file.getAbsolutePath(), Charsets.UTF_8)
+          .putLong(file.length())
+          .putLong(file.lastModified());
+    }
+    return hasher.hash().toString();
+  }
+}
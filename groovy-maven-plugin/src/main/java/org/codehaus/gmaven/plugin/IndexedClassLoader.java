@@ -0,0 +1,473 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Attributes.Name;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import javax.annotation.Nullable;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.codehaus.gmaven.adapter.ClasspathFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Class-loader for jar files, with an index of the jars providing each package.
+ *
+ * Classes and resources are loaded from the jars before the parent, same as a self-first realm.  Lookups only
+ * consult the jars which provide the requested package, so names from other packages go straight to the parent.
+ * Jars with the same content are only indexed once.
+ *
+ * Jars are not expanded with their {@code Class-Path} manifest references; see {@link #withManifestClassPath}.
+ *
+ * @since 2.2.0
+ */
+public class IndexedClassLoader
+    extends ClassLoader
+    implements Closeable, ClasspathFiles
+{
+  private static final Logger log = LoggerFactory.getLogger(IndexedClassLoader.class);
+
+  private final List<IndexedJar> jars = new ArrayList<IndexedJar>();
+
+  /**
+   * Jars providing each package; package names use '/' separators, root package is empty.
+   */
+  private final Map<String, List<IndexedJar>> packages = new HashMap<String, List<IndexedJar>>();
+
+  public IndexedClassLoader(final ClassLoader parent, final List<File> files) throws IOException {
+    super(checkNotNull(parent));
+    checkNotNull(files);
+
+    try {
+      for (File file : dedupe(files)) {
+        index(new IndexedJar(file));
+      }
+    }
+    catch (IOException e) {
+      close();
+      throw e;
+    }
+    log.debug("Indexed {} packages of {} jars", packages.size(), jars.size());
+  }
+
+  /**
+   * Add the jars referenced by {@code Class-Path} manifest attributes of the given class-path, recursively.
+   *
+   * Same order as {@link java.net.URLClassLoader}; referenced entries directly follow the jar which references them.
+   * Missing references are ignored.  References may be directories.
+   */
+  public static List<File> withManifestClassPath(final List<File> files) throws IOException {
+    checkNotNull(files);
+
+    Set<File> result = new LinkedHashSet<File>();
+    for (File file : files) {
+      addWithManifestClassPath(result, file);
+    }
+    return new ArrayList<File>(result);
+  }
+
+  private static void addWithManifestClassPath(final Set<File> result, final File file) throws IOException {
+    if (!result.add(file) || !file.isFile()) {
+      return;
+    }
+
+    Manifest manifest;
+    JarFile jar = new JarFile(file);
+    try {
+      manifest = jar.getManifest();
+    }
+    finally {
+      jar.close();
+    }
+
+    String classPath = manifest != null ? manifest.getMainAttributes().getValue(Name.CLASS_PATH) : null;
+    if (classPath == null) {
+      return;
+    }
+
+    URI base = file.toURI();
+    for (String entry : classPath.trim().split("\\s+")) {
+      if (entry.isEmpty()) {
+        continue;
+      }
+      File referenced;
+      try {
+        // entries are URLs relative to the referencing jar
+        referenced = new File(base.resolve(entry));
+      }
+      catch (IllegalArgumentException e) {
+        log.debug("Ignoring invalid Class-Path entry: {}; of: {}", entry, file);
+        continue;
+      }
+      if (referenced.exists()) {
+        addWithManifestClassPath(result, referenced);
+      }
+      else {
+        log.debug("Ignoring missing Class-Path entry: {}; of: {}", entry, file);
+      }
+    }
+  }
+
+  /**
+   * Remove jars with the same content; only jars of the same size are checksummed.
+   */
+  private static List<File> dedupe(final List<File> files) throws IOException {
+    Map<Long, List<File>> sizes = new HashMap<Long, List<File>>();
+    for (File file : files) {
+      List<File> same = sizes.get(file.length());
+      if (same == null) {
+        same = new ArrayList<File>(1);
+        sizes.put(file.length(), same);
+      }
+      same.add(file);
+    }
+
+    Set<File> duplicates = new LinkedHashSet<File>();
+    Map<HashCode, File> checksums = new HashMap<HashCode, File>();
+    for (List<File> same : sizes.values()) {
+      if (same.size() == 1) {
+        continue;
+      }
+      // keep the first occurrence, in classpath order
+      for (File file : same) {
+        HashCode checksum = Files.hash(file, Hashing.sha1());
+        File original = checksums.get(checksum);
+        if (original == null) {
+          checksums.put(checksum, file);
+        }
+        else {
+          log.debug("Ignoring duplicate jar: {}; same as: {}", file, original);
+          duplicates.add(file);
+        }
+      }
+    }
+
+    List<File> result = new ArrayList<File>(files.size());
+    for (File file : files) {
+      if (!duplicates.contains(file)) {
+        result.add(file);
+      }
+    }
+    return result;
+  }
+
+  private void index(final IndexedJar jar) {
+    jars.add(jar);
+
+    Set<String> names = new LinkedHashSet<String>();
+    Enumeration<JarEntry> entries = jar.file.entries();
+    while (entries.hasMoreElements()) {
+      JarEntry entry = entries.nextElement();
+      if (!entry.isDirectory()) {
+        names.add(packageOf(entry.getName()));
+      }
+    }
+    for (String name : names) {
+      List<IndexedJar> providers = packages.get(name);
+      if (providers == null) {
+        providers = new ArrayList<IndexedJar>(1);
+        packages.put(name, providers);
+      }
+      providers.add(jar);
+    }
+  }
+
+  private static String packageOf(final String path) {
+    int i = path.lastIndexOf('/');
+    return i == -1 ? "" : path.substring(0, i);
+  }
+
+  private List<IndexedJar> providersOf(final String path) {
+    List<IndexedJar> providers = packages.get(packageOf(path));
+    return providers != null ? providers : Collections.<IndexedJar>emptyList();
+  }
+
+  //
+  // Classes
+  //
+
+  @Override
+  protected synchronized Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+    Class<?> type = findLoadedClass(name);
+    if (type == null) {
+      type = findIndexedClass(name);
+      if (type == null) {
+        return super.loadClass(name, resolve);
+      }
+    }
+    if (resolve) {
+      resolveClass(type);
+    }
+    return type;
+  }
+
+  @Override
+  protected Class<?> findClass(final String name) throws ClassNotFoundException {
+    Class<?> type = findIndexedClass(name);
+    if (type == null) {
+      throw new ClassNotFoundException(name);
+    }
+    return type;
+  }
+
+  @Nullable
+  private Class<?> findIndexedClass(final String name) throws ClassNotFoundException {
+    if (name.startsWith("java.")) {
+      return null;
+    }
+
+    String path = name.replace('.', '/') + ".class";
+    for (IndexedJar jar : providersOf(path)) {
+      JarEntry entry = jar.file.getJarEntry(path);
+      if (entry != null) {
+        try {
+          return defineClass(name, jar, entry);
+        }
+        catch (IOException e) {
+          throw new ClassNotFoundException(name, e);
+        }
+      }
+    }
+    return null;
+  }
+
+  private Class<?> defineClass(final String name, final IndexedJar jar, final JarEntry entry) throws IOException {
+    int i = name.lastIndexOf('.');
+    if (i != -1) {
+      definePackage(name.substring(0, i), jar);
+    }
+
+    byte[] bytes;
+    InputStream input = jar.file.getInputStream(entry);
+    try {
+      bytes = ByteStreams.toByteArray(input);
+    }
+    finally {
+      input.close();
+    }
+
+    // signers are only known once the entry has been read
+    return defineClass(name, bytes, 0, bytes.length, jar.getProtectionDomain(entry.getCodeSigners()));
+  }
+
+  private void definePackage(final String name, final IndexedJar jar) throws IOException {
+    if (getPackage(name) != null) {
+      return;
+    }
+
+    Manifest manifest = jar.file.getManifest();
+    try {
+      if (manifest == null) {
+        definePackage(name, null, null, null, null, null, null, null);
+      }
+      else {
+        Attributes main = manifest.getMainAttributes();
+        Attributes section = manifest.getAttributes(name.replace('.', '/') + '/');
+        definePackage(name,
+            attribute(section, main, Name.SPECIFICATION_TITLE),
+            attribute(section, main, Name.SPECIFICATION_VERSION),
+            attribute(section, main, Name.SPECIFICATION_VENDOR),
+            attribute(section, main, Name.IMPLEMENTATION_TITLE),
+            attribute(section, main, Name.IMPLEMENTATION_VERSION),
+            attribute(section, main, Name.IMPLEMENTATION_VENDOR),
+            null);
+      }
+    }
+    catch (IllegalArgumentException e) {
+      // defined concurrently
+    }
+  }
+
+  @Nullable
+  private static String attribute(final @Nullable Attributes section, final Attributes main, final Name name) {
+    String value = section != null ? section.getValue(name) : null;
+    return value != null ? value : main.getValue(name);
+  }
+
+  //
+  // Resources
+  //
+
+  @Override
+  public URL getResource(final String name) {
+    URL url = findResource(name);
+    return url != null ? url : super.getResource(name);
+  }
+
+  @Override
+  public Enumeration<URL> getResources(final String name) throws IOException {
+    Set<URL> urls = new LinkedHashSet<URL>(Collections.list(findResources(name)));
+    urls.addAll(Collections.list(getParent().getResources(name)));
+    return Collections.enumeration(urls);
+  }
+
+  @Override
+  protected URL findResource(final String name) {
+    for (IndexedJar jar : providersOf(name)) {
+      URL url = jar.findResource(name);
+      if (url != null) {
+        return url;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected Enumeration<URL> findResources(final String name) throws IOException {
+    List<URL> urls = new ArrayList<URL>(1);
+    for (IndexedJar jar : providersOf(name)) {
+      URL url = jar.findResource(name);
+      if (url != null) {
+        urls.add(url);
+      }
+    }
+    return Collections.enumeration(urls);
+  }
+
+  /**
+   * Indexed jars; after removal of duplicates.
+   */
+  @Override
+  public List<File> getFiles() {
+    List<File> files = new ArrayList<File>(jars.size());
+    for (IndexedJar jar : jars) {
+      files.add(jar.source);
+    }
+    return files;
+  }
+
+  /**
+   * Close all jar files.
+   */
+  @Override
+  public void close() {
+    for (IndexedJar jar : jars) {
+      try {
+        jar.file.close();
+      }
+      catch (IOException e) {
+        log.warn("Failed to close: {}", jar.source, e);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "jars=" + jars.size() +
+        ", packages=" + packages.size() +
+        '}';
+  }
+
+  /**
+   * Indexed jar file.
+   */
+  private static class IndexedJar
+  {
+    private final File source;
+
+    private final JarFile file;
+
+    private final URL url;
+
+    private final String base;
+
+    private final Map<CodeSigners, ProtectionDomain> domains = new HashMap<CodeSigners, ProtectionDomain>();
+
+    private IndexedJar(final File source) throws IOException {
+      this.source = source;
+      this.file = new JarFile(source);
+      this.url = source.toURI().toURL();
+      this.base = "jar:" + url + "!/";
+    }
+
+    @Nullable
+    private URL findResource(final String name) {
+      if (file.getJarEntry(name) == null) {
+        return null;
+      }
+      try {
+        return new URL(base + name);
+      }
+      catch (MalformedURLException e) {
+        return null;
+      }
+    }
+
+    private ProtectionDomain getProtectionDomain(final @Nullable CodeSigner[] signers) {
+      synchronized (domains) {
+        CodeSigners key = new CodeSigners(signers);
+        ProtectionDomain domain = domains.get(key);
+        if (domain == null) {
+          domain = new ProtectionDomain(new CodeSource(url, signers), null);
+          domains.put(key, domain);
+        }
+        return domain;
+      }
+    }
+  }
+
+  /**
+   * Code signers of an entry, as map key.
+   */
+  private static class CodeSigners
+  {
+    private final List<CodeSigner> signers;
+
+    private CodeSigners(final @Nullable CodeSigner[] signers) {
+      this.signers = signers != null ? Arrays.asList(signers) : Collections.<CodeSigner>emptyList();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      return obj instanceof CodeSigners && signers.equals(((CodeSigners) obj).signers);
+    }
+
+    @Override
+    public int hashCode() {
+      return signers.hashCode();
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.net.URL;
+
+import javax.annotation.Nullable;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.codehaus.gmaven.adapter.PhaseRecorder.Phase;
+
+/**
+ * {@link FlightEvents} backed by {@code jdk.jfr}; only loaded when available.
+ *
+ * Events are only allocated and populated while enabled by a recording.
+ *
+ * @since 2.2.0
+ */
+class JfrFlightEvents
+    extends FlightEvents
+{
+  @Name("org.codehaus.gmaven.RealmCreation")
+  @Label("Realm Creation")
+  @Description("Creation of the runtime realm of the additional classpath")
+  @Category("GMaven")
+  static class RealmCreationEvent
+      extends Event
+  {
+    @Label("Classpath Entries")
+    int classpathEntries;
+  }
+
+  @Name("org.codehaus.gmaven.ResourceLookup")
+  @Label("Resource Lookup")
+  @Description("Lookup of a script class by the resource loader")
+  @Category("GMaven")
+  @StackTrace(false)
+  static class ResourceLookupEvent
+      extends Event
+  {
+    @Label("Name")
+    String name;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Source")
+    String source;
+  }
+
+  @Name("org.codehaus.gmaven.BindingCreation")
+  @Label("Binding Creation")
+  @Description("Construction of a script binding")
+  @Category("GMaven")
+  static class BindingCreationEvent
+      extends Event
+  {
+    @Label("Variables")
+    int variables;
+
+    @Label("Lazy Variables")
+    int lazyVariables;
+  }
+
+  @Name("org.codehaus.gmaven.ScriptCompilation")
+  @Label("Script Compilation")
+  @Description("Compilation of a script, or loading it from the class cache")
+  @Category("GMaven")
+  static class ScriptCompilationEvent
+      extends Event
+  {
+    @Label("Script")
+    String script;
+
+    @Label("Class Count")
+    int classCount;
+
+    @Label("Compile Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long compileTime;
+  }
+
+  @Name("org.codehaus.gmaven.ScriptExecution")
+  @Label("Script Execution")
+  @Description("Execution of the scripts of an execute goal")
+  @Category("GMaven")
+  static class ScriptExecutionEvent
+      extends Event
+  {
+    @Label("Module")
+    String module;
+
+    @Label("Execution Id")
+    String executionId;
+
+    @Label("Script")
+    String script;
+  }
+
+  @Override
+  public Phase startRealmCreation(final int classpathEntries) {
+    final RealmCreationEvent event = new RealmCreationEvent();
+    if (!event.isEnabled()) {
+      return NOOP_PHASE;
+    }
+    event.classpathEntries = classpathEntries;
+    event.begin();
+    return new Phase()
+    {
+      @Override
+      public void stop() {
+        event.commit();
+      }
+    };
+  }
+
+  @Override
+  public Phase startScriptExecution(final String module, final String executionId, final String script) {
+    final ScriptExecutionEvent event = new ScriptExecutionEvent();
+    if (!event.isEnabled()) {
+      return NOOP_PHASE;
+    }
+    event.module = module;
+    event.executionId = executionId;
+    event.script = script;
+    event.begin();
+    return new Phase()
+    {
+      @Override
+      public void stop() {
+        event.commit();
+      }
+    };
+  }
+
+  @Override
+  public Lookup startLookup(final String name) {
+    final ResourceLookupEvent event = new ResourceLookupEvent();
+    if (!event.isEnabled()) {
+      return NOOP_LOOKUP;
+    }
+    event.name = name;
+    event.begin();
+    return new Lookup()
+    {
+      @Override
+      public URL stop(final @Nullable URL url, final String source) {
+        event.found = url != null;
+        event.source = source;
+        event.commit();
+        return url;
+      }
+    };
+  }
+
+  @Override
+  public void bindingCreated(final int variables, final int lazyVariables) {
+    BindingCreationEvent event = new BindingCreationEvent();
+    if (event.isEnabled()) {
+      event.variables = variables;
+      event.lazyVariables = lazyVariables;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void scriptCompiled(final String name, final int classCount, final long durationNanos) {
+    ScriptCompilationEvent event = new ScriptCompilationEvent();
+    if (event.isEnabled()) {
+      event.script = name;
+      event.classCount = classCount;
+      event.compileTime = durationNanos;
+      event.commit();
+    }
+  }
+}
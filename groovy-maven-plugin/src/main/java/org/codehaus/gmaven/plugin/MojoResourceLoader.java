@@ -19,15 +19,24 @@ import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.Nullable;
 
+import com.google.common.base.Optional;
 import org.codehaus.gmaven.adapter.ClassSource;
 import org.codehaus.gmaven.adapter.ResourceLoader;
+import org.codehaus.gmaven.plugin.FlightEvents.Lookup;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Mojo {@link ResourceLoader}.
  *
+ * When created with a {@link ScriptpathIndex} the scriptpath is not checked on the file-system, and each name is
+ * resolved once; later lookups of the same name, including misses, return the same result.
+ *
  * @since 2.0
  */
 public class MojoResourceLoader
@@ -37,6 +46,13 @@ public class MojoResourceLoader
 
   private final List<File> scriptpath;
 
+  private final ScriptpathIndex scriptpathIndex;
+
+  /**
+   * Resolved resources by class-name; only when indexed.
+   */
+  private final ConcurrentMap<String, Optional<URL>> resolved;
+
   public MojoResourceLoader(final ClassLoader classLoader,
                             final @Nullable ClassSource classSource,
                             final @Nullable List<File> scriptpath)
@@ -44,6 +60,22 @@ public class MojoResourceLoader
     super(classLoader);
     this.classSource = classSource;
     this.scriptpath = scriptpath;
+    this.scriptpathIndex = null;
+    this.resolved = null;
+  }
+
+  /**
+   * @since 2.2.0
+   */
+  public MojoResourceLoader(final ClassLoader classLoader,
+                            final @Nullable ClassSource classSource,
+                            final ScriptpathIndex scriptpathIndex)
+  {
+    super(classLoader);
+    this.classSource = classSource;
+    this.scriptpathIndex = checkNotNull(scriptpathIndex);
+    this.scriptpath = scriptpathIndex.getScriptpath();
+    this.resolved = new ConcurrentHashMap<String, Optional<URL>>();
   }
 
   public MojoResourceLoader(final ClassLoader classLoader,
@@ -54,14 +86,38 @@ public class MojoResourceLoader
 
   @Nullable
   protected URL resolve(final String className, final ClassLoader classLoader) throws MalformedURLException {
+    if (resolved == null) {
+      return doResolve(className, classLoader);
+    }
+
+    Optional<URL> url = resolved.get(className);
+    if (url == null) {
+      url = Optional.fromNullable(doResolve(className, classLoader));
+      resolved.putIfAbsent(className, url);
+    }
+    else {
+      FlightEvents.get().startLookup(className).stop(url.orNull(), "cache");
+    }
+    return url.orNull();
+  }
+
+  @Nullable
+  private URL doResolve(final String className, final ClassLoader classLoader) throws MalformedURLException {
     String name = resourceName(className);
+    Lookup lookup = FlightEvents.get().startLookup(className);
 
     // First check the scriptpath
-    if (scriptpath != null) {
+    if (scriptpathIndex != null) {
+      File file = scriptpathIndex.find(name);
+      if (file != null) {
+        return lookup.stop(file.toURI().toURL(), "scriptpath");
+      }
+    }
+    else if (scriptpath != null) {
       for (File path : scriptpath) {
         File file = new File(path, name);
         if (file.exists()) {
-          return file.toURI().toURL();
+          return lookup.stop(file.toURI().toURL(), "scriptpath");
         }
       }
     }
@@ -79,7 +135,7 @@ public class MojoResourceLoader
     }
 
     if (url != null) {
-      return url;
+      return lookup.stop(url, "classpath");
     }
 
     // Check for a class defined in a file next to the main script file
@@ -89,12 +145,12 @@ public class MojoResourceLoader
         File file = new File(script.getParentFile(), name);
 
         if (file.exists()) {
-          return file.toURI().toURL();
+          return lookup.stop(file.toURI().toURL(), "script directory");
         }
       }
     }
 
     // else fallback to super impl
-    return super.resolve(className, classLoader);
+    return lookup.stop(super.resolve(className, classLoader), "default");
   }
-}
\ No newline at end of file
+}
@@ -20,6 +20,8 @@ import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.Mojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.codehaus.gmaven.adapter.PhaseRecorder;
+import org.codehaus.gmaven.adapter.PhaseRecorder.Phase;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,22 +39,46 @@ public abstract class MojoSupport
     log.trace("Construct");
   }
 
+  /**
+   * Phase timings of the current execution, if enabled.
+   */
+  private PhaseTimings timings;
+
   public void execute() throws MojoExecutionException, MojoFailureException {
     if (isSkipped()) {
       getLog().info("Skipping as requested by the user");
       return;
     }
+    timings = isTimingsEnabled() ? new PhaseTimings() : null;
     try {
       try {
         log.trace("Prepare");
-        prepare();
+        Phase phase = getPhaseRecorder().start("prepare");
+        try {
+          prepare();
+        }
+        finally {
+          phase.stop();
+        }
 
         log.trace("Run");
-        run();
+        phase = getPhaseRecorder().start("run");
+        try {
+          run();
+        }
+        finally {
+          phase.stop();
+        }
       }
       finally {
         log.trace("Cleanup");
-        cleanup();
+        Phase phase = getPhaseRecorder().start("cleanup");
+        try {
+          cleanup();
+        }
+        finally {
+          phase.stop();
+        }
       }
     }
     catch (Exception e) {
@@ -60,6 +86,35 @@ public abstract class MojoSupport
       Throwables.propagateIfPossible(e, MojoExecutionException.class, MojoFailureException.class);
       throw Throwables.propagate(e);
     }
+    finally {
+      if (timings != null) {
+        try {
+          reportTimings(timings);
+        }
+        catch (Exception e) {
+          log.warn("Failed to report timings", e);
+        }
+        timings = null;
+      }
+    }
+  }
+
+  /**
+   * Returns recorder for phases of the current execution.
+   */
+  protected PhaseRecorder getPhaseRecorder() {
+    return timings != null ? timings : PhaseTimings.NOOP;
+  }
+
+  protected boolean isTimingsEnabled() {
+    return false;
+  }
+
+  /**
+   * Report phase timings of a completed execution.
+   */
+  protected void reportTimings(final PhaseTimings timings) throws Exception {
+    log.debug("Timings:\n{}", timings);
   }
 
   protected void prepare() throws Exception {
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Session-scoped thread pool of the {@code parallel} helpers of script executions.
+ *
+ * All executions of a session share one pool sized by the thread budget, so concurrent executions of a parallel build
+ * do not each start threads for the whole budget.  Threads are started on demand.  The pool is shut down when the
+ * session is {@link #release released} at its end, when a new session is detected or when the container disposes it.
+ *
+ * @since 2.2.0
+ */
+@Component(role = ParallelExecutorPool.class)
+public class ParallelExecutorPool
+    implements Disposable
+{
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  /**
+   * Identity of the session which owns the executor.
+   */
+  private Object owner;
+
+  private ExecutorService executor;
+
+  /**
+   * Returns the executor of the given session, creating one of the given number of threads if needed.
+   */
+  public synchronized ExecutorService acquire(final Object session, final int threads) {
+    checkNotNull(session);
+    checkArgument(threads > 0, "Invalid threads: %s", threads);
+
+    if (owner != session) {
+      if (owner != null) {
+        log.debug("Session changed; shutting down parallel executor");
+        shutdown();
+      }
+      owner = session;
+    }
+    if (executor == null) {
+      log.debug("Creating parallel executor; threads: {}", threads);
+      executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+          .setNameFormat("gmaven-parallel-%d")
+          .setDaemon(true)
+          .build());
+    }
+    return executor;
+  }
+
+  /**
+   * Release the executor at the end of the given session; running tasks are interrupted.
+   */
+  public synchronized void release(final Object session) {
+    checkNotNull(session);
+
+    if (owner == session) {
+      log.debug("Session ended; shutting down parallel executor");
+      shutdown();
+      owner = null;
+    }
+  }
+
+  private void shutdown() {
+    if (executor != null) {
+      List<Runnable> pending = executor.shutdownNow();
+      log.debug("{} pending tasks cancelled", pending.size());
+      executor = null;
+    }
+  }
+
+  @Override
+  public synchronized void dispose() {
+    log.debug("Disposing");
+    shutdown();
+    owner = null;
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.codehaus.gmaven.adapter.PhaseRecorder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link PhaseRecorder} which records wall time, thread CPU time and thread allocated bytes of each phase.
+ *
+ * CPU time and allocated bytes are {@code -1} when not supported by the JVM.
+ *
+ * @since 2.2.0
+ */
+public class PhaseTimings
+    implements PhaseRecorder
+{
+  /**
+   * Recorder which records nothing.
+   */
+  public static final PhaseRecorder NOOP = new PhaseRecorder()
+  {
+    private final Phase phase = new Phase()
+    {
+      @Override
+      public void stop() {
+        // empty
+      }
+    };
+
+    @Override
+    public Phase start(final String name) {
+      return phase;
+    }
+  };
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+  /**
+   * {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} if available.
+   */
+  private static final Method allocatedBytesMethod = allocatedBytesMethod();
+
+  private static Method allocatedBytesMethod() {
+    try {
+      Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+      if (type.isInstance(threadBean)) {
+        Method method = type.getMethod("getThreadAllocatedBytes", long.class);
+        // probe; may be unsupported or disabled
+        if ((Long) method.invoke(threadBean, Thread.currentThread().getId()) >= 0) {
+          return method;
+        }
+      }
+    }
+    catch (Exception e) {
+      // ignore
+    }
+    return null;
+  }
+
+  private static long cpuTime() {
+    try {
+      return threadBean.isCurrentThreadCpuTimeSupported() ? threadBean.getCurrentThreadCpuTime() : -1;
+    }
+    catch (UnsupportedOperationException e) {
+      return -1;
+    }
+  }
+
+  private static long allocatedBytes() {
+    if (allocatedBytesMethod != null) {
+      try {
+        return (Long) allocatedBytesMethod.invoke(threadBean, Thread.currentThread().getId());
+      }
+      catch (Exception e) {
+        // ignore
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Recorded phase.
+   */
+  public static class Record
+      implements Phase
+  {
+    private final PhaseTimings owner;
+
+    private final String name;
+
+    private final List<Record> phases = Collections.synchronizedList(new ArrayList<Record>());
+
+    private final long startWall;
+
+    private final long startCpu;
+
+    private final long startAllocated;
+
+    private long wallNanos = -1;
+
+    private long cpuNanos = -1;
+
+    private long allocatedBytes = -1;
+
+    private Record(final PhaseTimings owner, final String name) {
+      this.owner = owner;
+      this.name = name;
+      this.startCpu = cpuTime();
+      this.startAllocated = allocatedBytes();
+      this.startWall = System.nanoTime();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public List<Record> getPhases() {
+      return phases;
+    }
+
+    public long getWallNanos() {
+      return wallNanos;
+    }
+
+    public long getCpuNanos() {
+      return cpuNanos;
+    }
+
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    @Override
+    public void stop() {
+      if (wallNanos != -1) {
+        return;
+      }
+      wallNanos = System.nanoTime() - startWall;
+      if (startCpu != -1) {
+        cpuNanos = cpuTime() - startCpu;
+      }
+      if (startAllocated != -1) {
+        allocatedBytes = allocatedBytes() - startAllocated;
+      }
+      owner.stopped(this);
+    }
+  }
+
+  private final List<Record> phases = Collections.synchronizedList(new ArrayList<Record>());
+
+  /**
+   * Running phases of each thread; innermost first.
+   */
+  private final ThreadLocal<LinkedList<Record>> running = new ThreadLocal<LinkedList<Record>>()
+  {
+    @Override
+    protected LinkedList<Record> initialValue() {
+      return new LinkedList<Record>();
+    }
+  };
+
+  @Override
+  public Phase start(final String name) {
+    checkNotNull(name);
+
+    Record record = new Record(this, name);
+    LinkedList<Record> stack = running.get();
+    if (stack.isEmpty()) {
+      phases.add(record);
+    }
+    else {
+      stack.getFirst().phases.add(record);
+    }
+    stack.addFirst(record);
+    return record;
+  }
+
+  private void stopped(final Record record) {
+    // phases stopped out of order also stop any phases nested within
+    LinkedList<Record> stack = running.get();
+    if (stack.contains(record)) {
+      while (stack.removeFirst() != record) {
+        // pop nested
+      }
+    }
+  }
+
+  public List<Record> getPhases() {
+    return phases;
+  }
+
+  //
+  // Reporting
+  //
+
+  /**
+   * Write recorded phases as JSON, with given top-level attributes.
+   */
+  public void writeJson(final Appendable out, final Map<String, String> attributes) throws IOException {
+    checkNotNull(out);
+    checkNotNull(attributes);
+
+    out.append("{\n");
+    for (Entry<String, String> entry : attributes.entrySet()) {
+      out.append("  ");
+      appendString(out, entry.getKey());
+      out.append(": ");
+      appendString(out, entry.getValue());
+      out.append(",\n");
+    }
+    out.append("  \"phases\": ");
+    appendPhases(out, snapshot(phases), "  ");
+    out.append("\n}\n");
+  }
+
+  private static List<Record> snapshot(final List<Record> records) {
+    synchronized (records) {
+      return new ArrayList<Record>(records);
+    }
+  }
+
+  private static void appendPhases(final Appendable out, final List<Record> records, final String indent)
+      throws IOException
+  {
+    if (records.isEmpty()) {
+      out.append("[]");
+      return;
+    }
+
+    out.append("[\n");
+    for (int i = 0; i < records.size(); i++) {
+      Record record = records.get(i);
+      String nested = indent + "  ";
+      out.append(nested).append("{ \"name\": ");
+      appendString(out, record.name);
+      out.append(", \"wallNanos\": ").append(String.valueOf(record.wallNanos));
+      out.append(", \"cpuNanos\": ").append(String.valueOf(record.cpuNanos));
+      out.append(", \"allocatedBytes\": ").append(String.valueOf(record.allocatedBytes));
+      List<Record> children = snapshot(record.phases);
+      if (!children.isEmpty()) {
+        out.append(", \"phases\": ");
+        appendPhases(out, children, nested);
+      }
+      out.append(" }");
+      if (i + 1 < records.size()) {
+        out.append(',');
+      }
+      out.append('\n');
+    }
+    out.append(indent).append(']');
+  }
+
+  private static void appendString(final Appendable out, final String value) throws IOException {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            out.append(String.format("\\u%04x", (int) c));
+          }
+          else {
+            out.append(c);
+          }
+      }
+    }
+    out.append('"');
+  }
+
+  /**
+   * Human readable summary; one line per phase, in milliseconds.
+   */
+  @Override
+  public String toString() {
+    StringBuilder buff = new StringBuilder();
+    appendSummary(buff, snapshot(phases), "");
+    return buff.toString();
+  }
+
+  private static void appendSummary(final StringBuilder buff, final List<Record> records, final String indent) {
+    for (Record record : records) {
+      buff.append(indent).append(record.name)
+          .append(": wall=").append(record.wallNanos / 1000000).append("ms")
+          .append(", cpu=").append(record.cpuNanos == -1 ? -1 : record.cpuNanos / 1000000).append("ms")
+          .append(", allocated=").append(record.allocatedBytes == -1 ? -1 : record.allocatedBytes / 1024).append("kb")
+          .append('\n');
+      appendSummary(buff, snapshot(record.phases), indent + "  ");
+    }
+  }
+}
@@ -16,17 +16,34 @@
 package org.codehaus.gmaven.plugin;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
+import org.apache.maven.ProjectDependenciesResolver;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
+import org.apache.maven.execution.MavenExecutionRequest;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.descriptor.PluginDescriptor;
@@ -35,9 +52,16 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
 import org.codehaus.gmaven.adapter.GroovyRuntime;
+import org.codehaus.gmaven.adapter.LazyValue;
 import org.codehaus.gmaven.adapter.MagicContext;
+import org.codehaus.gmaven.adapter.PhaseRecorder.Phase;
+import org.codehaus.gmaven.adapter.ScriptExecutor;
+import org.codehaus.gmaven.adapter.ScriptPrecompiler;
+import org.codehaus.gmaven.adapter.ScriptPrecompiler.PrecompileHandle;
+import org.codehaus.gmaven.plugin.util.ArtifactFilter;
 import org.codehaus.gmaven.plugin.util.ContainerHelper;
 import org.codehaus.gmaven.plugin.util.GroovyVersionHelper;
+import org.codehaus.gmaven.plugin.util.Maps2;
 import org.codehaus.gmaven.plugin.util.MavenVersionHelper;
 import org.codehaus.gmaven.plugin.util.PropertiesBuilder;
 import org.codehaus.gmaven.plugin.util.VersionHelper;
@@ -92,6 +116,18 @@ public abstract class RuntimeMojoSupport
   @Component
   private PropertiesBuilder propertiesBuilder;
 
+  @Component
+  private RuntimeRealmPool runtimeRealmPool;
+
+  @Component
+  private ScriptpathIndexCache scriptpathIndexCache;
+
+  @Component
+  private ParallelExecutorPool parallelExecutorPool;
+
+  @Component
+  private ProjectDependenciesResolver dependenciesResolver;
+
   //
   // Configuration
   //
@@ -112,6 +148,28 @@ public abstract class RuntimeMojoSupport
   @Parameter(property = "scope", defaultValue = "none")
   private ClasspathScope classpathScope;
 
+  /**
+   * Project artifacts to include in the additional classpath; all artifacts in scope if empty.
+   *
+   * <br/>
+   * Patterns are {@code groupId[:artifactId[:type[:classifier]]]}, where each segment may use {@code *} wildcards.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.classpath.includes")
+  private List<String> classpathIncludes;
+
+  /**
+   * Project artifacts to exclude from the additional classpath.
+   *
+   * <br/>
+   * Patterns are {@code groupId[:artifactId[:type[:classifier]]]}, where each segment may use {@code *} wildcards.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.classpath.excludes")
+  private List<String> classpathExcludes;
+
   /**
    * Path to search for imported scripts.
    *
@@ -125,6 +183,76 @@ public abstract class RuntimeMojoSupport
     return scriptpath;
   }
 
+  /**
+   * Current index of the scriptpath; reused by executions while the scriptpath directories are unchanged.
+   *
+   * @since 2.2.0
+   */
+  protected ScriptpathIndex getScriptpathIndex() {
+    Phase phase = getPhaseRecorder().start("scriptpath");
+    try {
+      List<File> path = scriptpath != null ? scriptpath : Collections.<File>emptyList();
+      return scriptpathIndexCache.get(path);
+    }
+    finally {
+      phase.stop();
+    }
+  }
+
+  /**
+   * Compile scriptpath sources in the background while the execution is prepared.
+   *
+   * <br/>
+   * Sources are compiled in parallel across all cores, so classes imported from the scriptpath are ready when needed.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.scriptpath.precompile", defaultValue = "false")
+  private boolean precompileScriptpath;
+
+  /**
+   * Share runtime realms between executions with the same additional classpath.
+   *
+   * <br/>
+   * Shared realms are created once per session, avoiding realm creation and runtime bootstrap for each execution.
+   * Static state of scripts, meta-class changes and other Groovy runtime state then carry over between executions.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.runtime.share", defaultValue = "false")
+  private boolean shareRuntime;
+
+  /**
+   * Retain shared runtime realms, with their compiled scripts, for later builds in the same JVM; in minutes.
+   *
+   * <br/>
+   * Useful with long-running Maven processes such as the Maven daemon ({@code mvnd}).  Retained realms which are
+   * unused for this long, or whose classpath has changed, are disposed when the next build starts.  Disabled if 0.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.runtime.retain", defaultValue = "0")
+  private int retainRuntime;
+
+  /**
+   * Record wall time, CPU time and allocated bytes of each execution phase.
+   *
+   * <br/>
+   * Timings of each execution are written as JSON to {@code timingsDirectory}.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.timings", defaultValue = "false")
+  private boolean recordTimings;
+
+  /**
+   * Directory where execution timings are written.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.timings.directory", defaultValue = "${project.build.directory}/gmaven/timings")
+  private File timingsDirectory;
+
   //
   // Runtime state
   //
@@ -135,26 +263,124 @@ public abstract class RuntimeMojoSupport
   private File basedir;
 
   /**
-   * Class-world for script execution.
+   * Additional classpath of the runtime realm.
+   */
+  private List<File> classpath;
+
+  /**
+   * Runtime realm for script execution; pooled or owned by this execution.
+   */
+  private RuntimeRealmPool.Entry runtimeEntry;
+
+  /**
+   * True if {@link #runtimeEntry} is owned by this execution and must be disposed on cleanup.
+   */
+  private boolean runtimeOwned;
+
+  /**
+   * Background scriptpath precompilation; if enabled.
    */
-  private ClassWorld classWorld;
+  private PrecompileHandle precompileHandle;
+
+  protected MavenProject getProject() {
+    return project;
+  }
+
+  protected MavenSession getSession() {
+    return session;
+  }
+
+  protected MojoExecution getMojoExecution() {
+    return mojoExecution;
+  }
+
+  protected File getBasedir() {
+    return basedir;
+  }
 
   /**
-   * Class-realm for GMaven runtime.
+   * Number of threads of the Maven build ({@code -T}); 1 unless building in parallel.
+   *
+   * @since 2.2.0
    */
-  private ClassRealm runtimeRealm;
+  protected int getDegreeOfConcurrency() {
+    return degreeOfConcurrency(session.getRequest(), Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Number of threads configured by the given execution request; 1 if it can not be determined.
+   */
+  @VisibleForTesting
+  int degreeOfConcurrency(final Object request, final int processors) {
+    try {
+      // Maven 3.x resolves the thread configuration to a number
+      Method method = request.getClass().getMethod("getDegreeOfConcurrency");
+      return Math.max(1, (Integer) method.invoke(request));
+    }
+    catch (NoSuchMethodException e) {
+      // earlier versions only expose the configured value, ie. 4 or 1.5C
+    }
+    catch (Exception e) {
+      log.debug("Unable to determine degree of concurrency", e);
+      return 1;
+    }
+
+    try {
+      String threads = (String) request.getClass().getMethod("getThreadCount").invoke(request);
+      if (threads == null) {
+        return 1;
+      }
+      if (threads.endsWith("C")) {
+        float perCore = Float.parseFloat(threads.substring(0, threads.length() - 1));
+        return Math.max(1, (int) (perCore * processors));
+      }
+      return Math.max(1, Integer.parseInt(threads));
+    }
+    catch (Exception e) {
+      log.debug("Unable to determine degree of concurrency", e);
+      return 1;
+    }
+  }
+
+  /**
+   * Number of threads scripts may use for concurrent work; the build thread count when building in parallel,
+   * otherwise the number of available processors.
+   *
+   * @since 2.2.0
+   */
+  protected int getThreadBudget() {
+    int degree = getDegreeOfConcurrency();
+    return degree > 1 ? degree : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Additional classpath of the runtime realm; resolved by {@link #prepare()}.
+   *
+   * @since 2.2.0
+   */
+  protected List<File> getClasspath() {
+    return classpath;
+  }
 
   protected ClassRealm getRuntimeRealm() {
-    return runtimeRealm;
+    return runtimeEntry.getRealm();
   }
 
   /**
    * GMaven runtime.
    */
-  private GroovyRuntime runtime;
-
   protected GroovyRuntime getRuntime() {
-    return runtime;
+    return runtimeEntry.getRuntime();
+  }
+
+  /**
+   * Class-loader for script execution; provides precompiled scriptpath classes if enabled.
+   */
+  protected ClassLoader getScriptClassLoader() {
+    if (precompileHandle != null) {
+      return precompileHandle.getClassLoader();
+    }
+    return getRuntimeRealm();
   }
 
   @Override
@@ -162,19 +388,177 @@ public abstract class RuntimeMojoSupport
     basedir = resolveBasedir();
     log.debug("Base directory: {}", basedir);
 
-    classWorld = new ClassWorld();
+    final ClassLoader parentCl = getClass().getClassLoader();
 
-    ClassLoader parentCl = getClass().getClassLoader();
+    Phase phase = getPhaseRecorder().start("versions");
+    try {
+      ensureMavenCompatibility(parentCl);
+    }
+    finally {
+      phase.stop();
+    }
 
-    ensureMavenCompatibility(parentCl);
+    phase = getPhaseRecorder().start("classpath");
+    try {
+      classpath = resolveAdditionalClasspath();
+    }
+    finally {
+      phase.stop();
+    }
+
+    Callable<RuntimeRealmPool.Entry> factory = new Callable<RuntimeRealmPool.Entry>()
+    {
+      @Override
+      public RuntimeRealmPool.Entry call() throws Exception {
+        return createRuntime(parentCl, classpath);
+      }
+    };
+
+    // release session-scoped resources when the session ends
+    final MavenExecutionRequest request = session.getRequest();
+    SessionEndListener.install(request, new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          runtimeRealmPool.release(request);
+        }
+        finally {
+          parallelExecutorPool.release(request);
+        }
+      }
+    });
+
+    phase = getPhaseRecorder().start("realm");
+    try {
+      if (shareRuntime) {
+        runtimeEntry = runtimeRealmPool.acquire(request, parentCl, classpath,
+            TimeUnit.MINUTES.toMillis(retainRuntime), factory);
+      }
+      if (runtimeEntry == null) {
+        runtimeEntry = factory.call();
+        runtimeOwned = true;
+      }
+    }
+    finally {
+      phase.stop();
+    }
 
-    runtimeRealm = classWorld.newRealm("gmaven-runtime", parentCl);
+    if (precompileScriptpath && scriptpath != null && !scriptpath.isEmpty()) {
+      phase = getPhaseRecorder().start("precompile");
+      try {
+        ScriptPrecompiler precompiler = getRuntime().createScriptPrecompiler();
+        precompileHandle = precompiler.precompile(getRuntimeRealm(), scriptpath, createOptions());
+      }
+      finally {
+        phase.stop();
+      }
+    }
+  }
 
-    ensureGroovyComparability(runtimeRealm);
+  /**
+   * Create runtime realm and its {@link GroovyRuntime}.
+   */
+  private RuntimeRealmPool.Entry createRuntime(final ClassLoader parentCl, final List<File> classpath)
+      throws Exception
+  {
+    Phase event = FlightEvents.get().startRealmCreation(classpath.size());
+    try {
+      return doCreateRuntime(parentCl, classpath);
+    }
+    finally {
+      event.stop();
+    }
+  }
 
-    runtime = groovyRuntimeFactory.create(runtimeRealm);
+  private RuntimeRealmPool.Entry doCreateRuntime(final ClassLoader parentCl, final List<File> classpath)
+      throws Exception
+  {
+    ClassWorld classWorld = new ClassWorld();
+    ClassRealm realm = null;
+    try {
+      Phase phase = getPhaseRecorder().start("classpath");
+      try {
+        realm = createRealm(classWorld, parentCl, classpath);
+      }
+      finally {
+        phase.stop();
+      }
+
+      phase = getPhaseRecorder().start("versions");
+      try {
+        ensureGroovyComparability(realm);
+      }
+      finally {
+        phase.stop();
+      }
+
+      GroovyRuntime runtime = groovyRuntimeFactory.create(realm);
+
+      return new RuntimeRealmPool.Entry(classWorld, realm, runtime, getIndexedClassLoader(realm));
+    }
+    catch (Exception e) {
+      if (realm != null) {
+        classWorld.disposeRealm(realm.getId());
+        IndexedClassLoader jars = getIndexedClassLoader(realm);
+        if (jars != null) {
+          jars.close();
+        }
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Create runtime realm for the additional classpath.
+   *
+   * Jars, including jars referenced by {@code Class-Path} manifest entries, are indexed by an
+   * {@link IndexedClassLoader} parent of the realm.  Directories, such as the build output directories, remain entries
+   * of the realm; so directories are searched first, in classpath order, then the indexed jars.
+   */
+  @VisibleForTesting
+  ClassRealm createRealm(final ClassWorld classWorld, final ClassLoader parentCl, final List<File> classpath)
+      throws Exception
+  {
+    List<File> jarFiles = new ArrayList<File>();
+    List<File> directories = new ArrayList<File>();
+    if (!classpath.isEmpty()) {
+      for (File file : IndexedClassLoader.withManifestClassPath(classpath)) {
+        if (file.isFile()) {
+          jarFiles.add(file);
+        }
+        else {
+          directories.add(file);
+        }
+      }
+    }
+
+    if (jarFiles.isEmpty()) {
+      ClassRealm realm = classWorld.newRealm("gmaven-runtime", parentCl);
+      configureAdditionalClasspath(realm, classpath);
+      return realm;
+    }
+
+    IndexedClassLoader jars = new IndexedClassLoader(parentCl, jarFiles);
+    log.debug("Additional classpath jars: {}", jars);
+    for (File file : jarFiles) {
+      log.debug("  {}", file);
+    }
+    try {
+      ClassRealm realm = classWorld.newRealm("gmaven-runtime", jars);
+      configureAdditionalClasspath(realm, directories);
+      return realm;
+    }
+    catch (Exception e) {
+      jars.close();
+      throw e;
+    }
+  }
 
-    configureAdditionalClasspath(runtimeRealm);
+  @Nullable
+  private static IndexedClassLoader getIndexedClassLoader(final ClassRealm realm) {
+    ClassLoader parent = realm.getParentClassLoader();
+    return parent instanceof IndexedClassLoader ? (IndexedClassLoader) parent : null;
   }
 
   /**
@@ -203,19 +587,56 @@ public abstract class RuntimeMojoSupport
 
   @Override
   protected void cleanup() throws Exception {
-    // allow runtime to clean up
-    if (runtime != null) {
-      runtime.cleanup();
+    if (precompileHandle != null) {
+      precompileHandle.cancel();
+      precompileHandle = null;
     }
 
-    // dispose runtime realm
-    if (runtimeRealm != null) {
-      classWorld.disposeRealm(runtimeRealm.getId());
-      runtimeRealm = null;
+    // dispose runtime realm unless pooled
+    if (runtimeEntry != null) {
+      if (runtimeOwned) {
+        runtimeEntry.dispose();
+      }
+      runtimeEntry = null;
+      runtimeOwned = false;
+    }
+  }
+
+  @Override
+  protected boolean isTimingsEnabled() {
+    return recordTimings;
+  }
+
+  /**
+   * Write timings to {@code <timingsDirectory>/<goal>-<execution-id>.json}.
+   */
+  @Override
+  protected void reportTimings(final PhaseTimings timings) throws Exception {
+    super.reportTimings(timings);
+
+    if (!timingsDirectory.isDirectory() && !timingsDirectory.mkdirs()) {
+      throw new IOException("Failed to create directory: " + timingsDirectory);
     }
 
-    // sanity nulls
-    classWorld = null;
+    String goal = mojoExecution.getGoal();
+    String executionId = mojoExecution.getExecutionId();
+    File file = new File(timingsDirectory, goal + "-" + executionId + ".json");
+
+    Map<String, String> attributes = new LinkedHashMap<String, String>();
+    attributes.put("project", project.getId());
+    attributes.put("goal", goal);
+    attributes.put("executionId", executionId);
+    attributes.put("thread", Thread.currentThread().getName());
+    attributes.put("timestamp", String.valueOf(System.currentTimeMillis()));
+
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charsets.UTF_8);
+    try {
+      timings.writeJson(writer, attributes);
+    }
+    finally {
+      writer.close();
+    }
+    log.debug("Wrote timings: {}", file);
   }
 
   /**
@@ -253,38 +674,83 @@ public abstract class RuntimeMojoSupport
   }
 
   /**
-   * Configure additional classpath elements for the runtime realm.
+   * Resolve additional classpath elements for the runtime realm.
    */
-  private void configureAdditionalClasspath(final ClassRealm realm) {
-    log.debug("Configuring additional classpath with scope: {}", classpathScope);
+  private List<File> resolveAdditionalClasspath() throws MojoExecutionException {
+    log.debug("Resolving additional classpath with scope: {}", classpathScope);
+
+    return additionalClasspath(classpathScope, project.getBuild(), resolveArtifacts(),
+        new ArtifactFilter(classpathIncludes, classpathExcludes));
+  }
 
+  /**
+   * Additional classpath elements for given scope, from build output directories and resolved artifacts.
+   */
+  @VisibleForTesting
+  List<File> additionalClasspath(final ClasspathScope scope,
+                                 final Build build,
+                                 final Set<Artifact> artifacts,
+                                 final ArtifactFilter filter)
+  {
     List<File> classpath = new ArrayList<File>();
 
     // add build output directory if scope includes 'compile'
-    if (classpathScope.matches(compile)) {
-      classpath.add(new File(project.getBuild().getOutputDirectory()));
+    if (scope.matches(compile)) {
+      classpath.add(new File(build.getOutputDirectory()));
     }
 
     // add build test output directory if scope includes 'test'
-    if (classpathScope.matches(test)) {
-      classpath.add(new File(project.getBuild().getTestOutputDirectory()));
+    if (scope.matches(test)) {
+      classpath.add(new File(build.getTestOutputDirectory()));
     }
 
     // add matching project dependency artifacts
-    if (!project.getArtifacts().isEmpty()) {
-      for (Artifact artifact : project.getArtifacts()) {
-        if (classpathScope.matches(artifact.getScope())) {
-          File file = artifact.getFile();
-          if (!file.exists()) {
-            // for sanity, this should not really ever happen
-            log.warn("Artifact not resolved; ignoring: {}", artifact);
-            continue;
-          }
-          classpath.add(file);
+    for (Artifact artifact : artifacts) {
+      if (scope.matches(artifact.getScope())) {
+        if (!filter.accept(artifact)) {
+          log.debug("Artifact filtered; ignoring: {}", artifact);
+          continue;
+        }
+        File file = artifact.getFile();
+        if (file == null || !file.exists()) {
+          // for sanity, this should not really ever happen
+          log.warn("Artifact not resolved; ignoring: {}", artifact);
+          continue;
         }
+        classpath.add(file);
       }
     }
 
+    return classpath;
+  }
+
+  /**
+   * Resolve project dependency artifacts for the configured classpath scope; nothing is resolved for {@code none}.
+   */
+  private Set<Artifact> resolveArtifacts() throws MojoExecutionException {
+    List<String> scopes = new ArrayList<String>();
+    for (ClasspathScope scope : ClasspathScope.values()) {
+      if (scope != ClasspathScope.none && classpathScope.matches(scope)) {
+        scopes.add(scope.name());
+      }
+    }
+    if (scopes.isEmpty()) {
+      return Collections.emptySet();
+    }
+
+    log.debug("Resolving dependencies with scopes: {}", scopes);
+    try {
+      return dependenciesResolver.resolve(project, scopes, session);
+    }
+    catch (AbstractArtifactResolutionException e) {
+      throw new MojoExecutionException("Failed to resolve dependencies: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Configure additional classpath elements for the runtime realm.
+   */
+  private void configureAdditionalClasspath(final ClassRealm realm, final List<File> classpath) {
     if (!classpath.isEmpty()) {
       log.debug("Additional classpath:");
       for (File file : classpath) {
@@ -311,16 +777,32 @@ public abstract class RuntimeMojoSupport
    * Create script execution properties.
    */
   private Properties createProperties() {
-    propertiesBuilder
-      .setProject(project)
-      .setSession(session);
+    Phase phase = getPhaseRecorder().start("properties");
+    try {
+      // expose as Properties for better compatibility; only built once the script reads them
+      return Maps2.toProperties(buildProperties());
+    }
+    finally {
+      phase.stop();
+    }
+  }
+
+  /**
+   * Build merged execution properties; values are resolved on first use.
+   *
+   * @since 2.2.0
+   */
+  protected Map<String, String> buildProperties() {
+    // scripts executed in parallel may build concurrently
+    synchronized (propertiesBuilder) {
+      propertiesBuilder
+          .setProject(project)
+          .setSession(session);
 
-    customizeProperties(propertiesBuilder);
+      customizeProperties(propertiesBuilder);
 
-    // convert to Properties for better compatibility, groovy doesn't care about types so its not a big deal
-    Properties props = new Properties();
-    props.putAll(propertiesBuilder.build());
-    return props;
+      return propertiesBuilder.build();
+    }
   }
 
   /**
@@ -330,6 +812,19 @@ public abstract class RuntimeMojoSupport
     // empty
   }
 
+  /**
+   * Create runtime options; shared by script compilation and precompilation.
+   */
+  protected Map<String, Object> createOptions() {
+    Map<String, Object> options = new HashMap<String, Object>();
+    options.put(ScriptExecutor.PHASE_RECORDER, getPhaseRecorder());
+    int threads = getThreadBudget();
+    options.put(ScriptExecutor.PARALLELISM, threads);
+    options.put(ScriptExecutor.PARALLEL_EXECUTOR, parallelExecutorPool.acquire(session.getRequest(), threads));
+    options.put(ScriptExecutor.EVENT_LISTENER, FlightEvents.get());
+    return options;
+  }
+
   /**
    * Configures the context which will be available to executed scripts as binding variables.
    */
@@ -343,10 +838,17 @@ public abstract class RuntimeMojoSupport
     context.put("mojo", mojoExecution);
     context.put("basedir", basedir);
     context.put("project", project);
-    context.put("properties", createProperties());
+    context.put("properties", new LazyValue()
+    {
+      @Override
+      public Object get() {
+        return createProperties();
+      }
+    });
     context.put("session", session);
     context.put("settings", settings);
     context.put("ant", MagicContext.ANT_BUILDER);
+    context.put("parallel", MagicContext.PARALLEL);
     context.put("fail", new FailClosureTarget());
 
     return context;
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Throwables;
+import org.codehaus.gmaven.adapter.GroovyRuntime;
+import org.codehaus.plexus.classworlds.ClassWorld;
+import org.codehaus.plexus.classworlds.realm.ClassRealm;
+import org.codehaus.plexus.classworlds.realm.NoSuchRealmException;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Session-scoped pool of runtime realms.
+ *
+ * Executions with the same parent class-loader and additional classpath share a warm realm and {@link GroovyRuntime}.
+ * Pooled realms are disposed when the session is {@link #release released} at its end, when a new session is detected
+ * or when the container disposes the pool; unless retained, in which case they are reused by later sessions of the
+ * same JVM until unused for the retention time.
+ *
+ * @since 2.2.0
+ */
+@Component(role = RuntimeRealmPool.class)
+public class RuntimeRealmPool
+    implements Disposable
+{
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  /**
+   * Runtime realm and its {@link GroovyRuntime}.
+   */
+  public static class Entry
+  {
+    private final ClassWorld classWorld;
+
+    private final ClassRealm realm;
+
+    private final GroovyRuntime runtime;
+
+    @Nullable
+    private final IndexedClassLoader jars;
+
+    public Entry(final ClassWorld classWorld,
+                 final ClassRealm realm,
+                 final GroovyRuntime runtime,
+                 final @Nullable IndexedClassLoader jars)
+    {
+      this.classWorld = checkNotNull(classWorld);
+      this.realm = checkNotNull(realm);
+      this.runtime = checkNotNull(runtime);
+      this.jars = jars;
+    }
+
+    public Entry(final ClassWorld classWorld, final ClassRealm realm, final GroovyRuntime runtime) {
+      this(classWorld, realm, runtime, null);
+    }
+
+    public ClassRealm getRealm() {
+      return realm;
+    }
+
+    public GroovyRuntime getRuntime() {
+      return runtime;
+    }
+
+    /**
+     * Allow runtime to clean up and dispose the realm.
+     */
+    public void dispose() {
+      try {
+        runtime.cleanup();
+      }
+      finally {
+        try {
+          classWorld.disposeRealm(realm.getId());
+        }
+        catch (NoSuchRealmException e) {
+          // ignore
+        }
+        if (jars != null) {
+          jars.close();
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "{" +
+          "realm=" + realm +
+          ", runtime=" + runtime +
+          '}';
+    }
+  }
+
+  /**
+   * Pool key; parent class-loader identity and the state of the additional classpath.
+   */
+  private static final class Key
+  {
+    private final ClassLoader parent;
+
+    private final List<File> files;
+
+    private final List<String> classpath;
+
+    private Key(final ClassLoader parent, final List<File> files, final List<String> classpath) {
+      this.parent = parent;
+      this.files = files;
+      this.classpath = classpath;
+    }
+
+    /**
+     * True if the classpath files are unchanged since the key was created.
+     */
+    private boolean isCurrent() {
+      return classpath.equals(state(files));
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return parent == that.parent && classpath.equals(that.classpath);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(parent) + classpath.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return "Key{" +
+          "parent=" + parent +
+          ", classpath=" + classpath +
+          '}';
+    }
+  }
+
+  private final ConcurrentMap<Key, FutureTask<Entry>> entries = new ConcurrentHashMap<Key, FutureTask<Entry>>();
+
+  /**
+   * Expiry time of entries retained for later sessions.
+   */
+  private final ConcurrentMap<Key, Long> retained = new ConcurrentHashMap<Key, Long>();
+
+  /**
+   * Identity of the session which owns the pooled entries.
+   */
+  private Object owner;
+
+  /**
+   * Returns a pooled entry for the given parent and classpath, creating one with the given factory if needed.
+   *
+   * Returns null if the classpath can not be pooled, in which case the caller owns the realm it creates.
+   */
+  @Nullable
+  public Entry acquire(final Object session,
+                       final ClassLoader parent,
+                       final List<File> classpath,
+                       final Callable<Entry> factory)
+      throws Exception
+  {
+    return acquire(session, parent, classpath, 0, factory);
+  }
+
+  /**
+   * Returns a pooled entry for the given parent and classpath, creating one with the given factory if needed.
+   *
+   * Returns null if the classpath can not be pooled, in which case the caller owns the realm it creates.
+   *
+   * @param retainMillis Retain the entry for later sessions until unused for this long; 0 to dispose with the session.
+   */
+  @Nullable
+  public Entry acquire(final Object session,
+                       final ClassLoader parent,
+                       final List<File> classpath,
+                       final long retainMillis,
+                       final Callable<Entry> factory)
+      throws Exception
+  {
+    checkNotNull(session);
+    checkNotNull(parent);
+    checkNotNull(classpath);
+    checkNotNull(factory);
+
+    Key key = key(parent, classpath);
+    if (key == null) {
+      return null;
+    }
+
+    claim(session);
+
+    FutureTask<Entry> task = entries.get(key);
+    if (task == null) {
+      FutureTask<Entry> created = new FutureTask<Entry>(factory);
+      task = entries.putIfAbsent(key, created);
+      if (task == null) {
+        log.debug("Creating pooled runtime realm: {}", key);
+        task = created;
+        task.run();
+      }
+    }
+
+    try {
+      Entry entry = task.get();
+      log.debug("Using pooled runtime realm: {}", entry);
+      if (retainMillis > 0) {
+        retained.put(key, System.currentTimeMillis() + retainMillis);
+      }
+      return entry;
+    }
+    catch (ExecutionException e) {
+      // allow the next execution to try again
+      entries.remove(key, task);
+      Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Returns pool key; or null if classpath contains entries whose content may change during the build.
+   */
+  @Nullable
+  private Key key(final ClassLoader parent, final List<File> classpath) {
+    for (File file : classpath) {
+      // directories (ie. build output) change while the build runs; classes already loaded would be stale
+      if (!file.isFile()) {
+        log.debug("Not pooling runtime realm; classpath contains directory: {}", file);
+        return null;
+      }
+    }
+    List<File> files = new ArrayList<File>(classpath);
+    return new Key(parent, files, state(files));
+  }
+
+  private static List<String> state(final List<File> files) {
+    List<String> state = new ArrayList<String>(files.size());
+    for (File file : files) {
+      state.add(file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified());
+    }
+    return state;
+  }
+
+  /**
+   * Claim the pool for the given session; entries owned by a previous session are disposed.
+   */
+  private synchronized void claim(final Object session) {
+    if (owner != session) {
+      if (owner != null) {
+        log.debug("Session changed; disposing pooled runtime realms");
+        disposeUnretained();
+      }
+      owner = session;
+    }
+  }
+
+  /**
+   * Release the pool at the end of the given session; entries which are not retained are disposed.
+   */
+  public synchronized void release(final Object session) {
+    checkNotNull(session);
+
+    if (owner == session) {
+      log.debug("Session ended; disposing pooled runtime realms");
+      disposeUnretained();
+      owner = null;
+    }
+  }
+
+  /**
+   * Dispose entries which are not retained, expired or whose classpath has changed.
+   */
+  private void disposeUnretained() {
+    long now = System.currentTimeMillis();
+    for (Key key : entries.keySet()) {
+      Long expiry = retained.get(key);
+      if (expiry != null && expiry > now && key.isCurrent()) {
+        log.debug("Retaining pooled runtime realm: {}", key);
+        continue;
+      }
+      retained.remove(key);
+      FutureTask<Entry> task = entries.remove(key);
+      if (task != null) {
+        dispose(task);
+      }
+    }
+  }
+
+  private void dispose(final FutureTask<Entry> task) {
+    try {
+      task.get().dispose();
+    }
+    catch (Exception e) {
+      log.trace("Ignoring failed entry", e);
+    }
+  }
+
+  private void disposeEntries() {
+    for (FutureTask<Entry> task : entries.values()) {
+      dispose(task);
+    }
+    entries.clear();
+    retained.clear();
+  }
+
+  @Override
+  public synchronized void dispose() {
+    log.debug("Disposing");
+    disposeEntries();
+    owner = null;
+  }
+}
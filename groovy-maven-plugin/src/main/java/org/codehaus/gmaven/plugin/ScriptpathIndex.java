@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Snapshot of the Groovy sources on the scriptpath.
+ *
+ * Finding a source is a map lookup instead of a file-system check of each scriptpath directory.  The snapshot
+ * remains {@link #isCurrent() current} while no scriptpath directory has been modified.
+ *
+ * @since 2.2.0
+ */
+public class ScriptpathIndex
+{
+  private static final String DOT_GROOVY = ".groovy";
+
+  /**
+   * Directory modification times are only reliable when older than the snapshot by at least this much.
+   */
+  private static final long TIMESTAMP_GRANULARITY = 2000;
+
+  private final List<File> scriptpath;
+
+  private final long created;
+
+  /**
+   * Sources by resource name, ie. {@code a/b/C.groovy}; first scriptpath entry wins.
+   */
+  private final Map<String, File> sources = new HashMap<String, File>();
+
+  /**
+   * Modification time of each indexed directory; 0 for scriptpath entries which are missing.
+   */
+  private final Map<File, Long> directories = new LinkedHashMap<File, Long>();
+
+  public ScriptpathIndex(final List<File> scriptpath) {
+    this.scriptpath = Collections.unmodifiableList(new ArrayList<File>(checkNotNull(scriptpath)));
+    this.created = System.currentTimeMillis();
+
+    Set<String> visited = new HashSet<String>();
+    for (File path : this.scriptpath) {
+      directories.put(path, path.lastModified());
+      index(path, "", visited);
+    }
+  }
+
+  private void index(final File dir, final String prefix, final Set<String> visited) {
+    // guard against symbolic link cycles
+    try {
+      if (!visited.add(dir.getCanonicalPath())) {
+        return;
+      }
+    }
+    catch (IOException e) {
+      return;
+    }
+
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = prefix + file.getName();
+      if (file.isDirectory()) {
+        directories.put(file, file.lastModified());
+        index(file, name + "/", visited);
+      }
+      else if (name.endsWith(DOT_GROOVY) && !sources.containsKey(name)) {
+        sources.put(name, file);
+      }
+    }
+  }
+
+  public List<File> getScriptpath() {
+    return scriptpath;
+  }
+
+  /**
+   * Indexed sources by resource name, ie. {@code a/b/C.groovy}.
+   */
+  public Map<String, File> getSources() {
+    return Collections.unmodifiableMap(sources);
+  }
+
+  /**
+   * Find source for the given resource name, ie. {@code /a/b/C.groovy}; or null if there is none.
+   */
+  @Nullable
+  public File find(final String name) {
+    checkNotNull(name);
+    return sources.get(name.startsWith("/") ? name.substring(1) : name);
+  }
+
+  /**
+   * True if no indexed directory has been modified since the snapshot was taken.
+   *
+   * Adding, removing or renaming a file modifies its directory.
+   */
+  public boolean isCurrent() {
+    for (Map.Entry<File, Long> entry : directories.entrySet()) {
+      long modified = entry.getValue();
+      // modifications within the same timestamp tick as the snapshot can not be detected
+      if (modified > created - TIMESTAMP_GRANULARITY || entry.getKey().lastModified() != modified) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        "scriptpath=" + scriptpath +
+        ", sources=" + sources.size() +
+        ", directories=" + directories.size() +
+        '}';
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.codehaus.plexus.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of {@link ScriptpathIndex} instances, reused by executions while they are current.
+ *
+ * @since 2.2.0
+ */
+@Component(role = ScriptpathIndexCache.class)
+public class ScriptpathIndexCache
+{
+  private static final int MAX_SIZE = 32;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  private final Cache<List<File>, ScriptpathIndex> indexes = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .build();
+
+  /**
+   * Returns a current index of the given scriptpath; re-indexing if any scriptpath directory has been modified.
+   */
+  public ScriptpathIndex get(final List<File> scriptpath) {
+    checkNotNull(scriptpath);
+
+    List<File> key = new ArrayList<File>(scriptpath.size());
+    for (File path : scriptpath) {
+      key.add(path.getAbsoluteFile());
+    }
+
+    ScriptpathIndex index = indexes.getIfPresent(key);
+    if (index != null && index.isCurrent()) {
+      log.debug("Using scriptpath index: {}", index);
+      return index;
+    }
+
+    index = new ScriptpathIndex(key);
+    log.debug("Indexed scriptpath: {}", index);
+    indexes.put(key, index);
+    return index;
+  }
+}
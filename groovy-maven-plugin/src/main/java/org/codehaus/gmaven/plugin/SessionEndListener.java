@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link ExecutionListener} which runs a task when the session ends, delegating all events to the original listener.
+ *
+ * Plugins can not contribute lifecycle participants unless loaded as build extension, but Maven 3 reads the listener
+ * of the execution request for each event, so a listener installed by a mojo still sees the end of the session.
+ *
+ * @since 2.2.0
+ */
+public class SessionEndListener
+    implements ExecutionListener
+{
+  @Nullable
+  private final ExecutionListener delegate;
+
+  private final Runnable task;
+
+  public SessionEndListener(final @Nullable ExecutionListener delegate, final Runnable task) {
+    this.delegate = delegate;
+    this.task = checkNotNull(task);
+  }
+
+  /**
+   * Install a listener on the given request which runs the task when the session ends; once for each request.
+   */
+  public static void install(final MavenExecutionRequest request, final Runnable task) {
+    checkNotNull(request);
+    checkNotNull(task);
+
+    synchronized (request) {
+      ExecutionListener listener = request.getExecutionListener();
+      if (!(listener instanceof SessionEndListener)) {
+        request.setExecutionListener(new SessionEndListener(listener, task));
+      }
+    }
+  }
+
+  @Override
+  public void sessionEnded(final ExecutionEvent event) {
+    try {
+      if (delegate != null) {
+        delegate.sessionEnded(event);
+      }
+    }
+    finally {
+      task.run();
+    }
+  }
+
+  //
+  // Delegation
+  //
+
+  @Override
+  public void projectDiscoveryStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectDiscoveryStarted(event);
+    }
+  }
+
+  @Override
+  public void sessionStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.sessionStarted(event);
+    }
+  }
+
+  @Override
+  public void projectSkipped(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectSkipped(event);
+    }
+  }
+
+  @Override
+  public void projectStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectStarted(event);
+    }
+  }
+
+  @Override
+  public void projectSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectSucceeded(event);
+    }
+  }
+
+  @Override
+  public void projectFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.projectFailed(event);
+    }
+  }
+
+  @Override
+  public void mojoSkipped(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoSkipped(event);
+    }
+  }
+
+  @Override
+  public void mojoStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoStarted(event);
+    }
+  }
+
+  @Override
+  public void mojoSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoSucceeded(event);
+    }
+  }
+
+  @Override
+  public void mojoFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.mojoFailed(event);
+    }
+  }
+
+  @Override
+  public void forkStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkStarted(event);
+    }
+  }
+
+  @Override
+  public void forkSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkSucceeded(event);
+    }
+  }
+
+  @Override
+  public void forkFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkFailed(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectStarted(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectStarted(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectSucceeded(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectSucceeded(event);
+    }
+  }
+
+  @Override
+  public void forkedProjectFailed(final ExecutionEvent event) {
+    if (delegate != null) {
+      delegate.forkedProjectFailed(event);
+    }
+  }
+}
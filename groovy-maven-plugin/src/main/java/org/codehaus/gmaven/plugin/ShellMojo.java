@@ -15,14 +15,14 @@
  */
 package org.codehaus.gmaven.plugin;
 
-import java.util.HashMap;
+import java.io.File;
 import java.util.Map;
 
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.gmaven.adapter.ResourceLoader;
 import org.codehaus.gmaven.adapter.ShellRunner;
-
-import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
+import org.codehaus.gmaven.adapter.ShellRunner.ShellHandle;
 
 /**
  * Run {@code groovysh} shell.
@@ -32,19 +32,66 @@ import static org.apache.maven.plugins.annotations.ResolutionScope.TEST;
  *
  * @since 2.0
  */
-@Mojo(name = "shell", requiresProject = false, requiresDependencyResolution = TEST, aggregator = true)
+@Mojo(name = "shell", requiresProject = false, aggregator = true)
 public class ShellMojo
     extends RuntimeMojoSupport
 {
   // TODO: Expose groovysh options
 
+  /**
+   * Offer the packages and classes of the additional classpath to import and class-name completion.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.shell.completionIndex", defaultValue = "true")
+  private boolean completionIndex;
+
+  /**
+   * Directory of the persistent completion index of classpath jars.
+   *
+   * <br/>
+   * Jars are only opened to build the index when they change.  May be shared by several builds.
+   *
+   * @since 2.2.0
+   */
+  @Parameter(property = "gmaven.shell.completionIndex.directory",
+      defaultValue = "${settings.localRepository}/.cache/gmaven/completion")
+  private File completionIndexDirectory;
+
+  /**
+   * Shell initializing in the background while the context is created.
+   */
+  private ShellHandle shellHandle;
+
   @Override
-  protected void run() throws Exception {
+  protected void prepare() throws Exception {
+    super.prepare();
+
     final ResourceLoader resourceLoader = new MojoResourceLoader(getRuntimeRealm(), getScriptpath());
-    final Map<String, Object> context = createContext();
-    final Map<String, Object> options = new HashMap<String, Object>();
+    final Map<String, Object> options = createOptions();
+    if (completionIndex && !getClasspath().isEmpty()) {
+      options.put(ShellRunner.COMPLETION_INDEX,
+          ClasspathCompletionIndex.loadInBackground(completionIndexDirectory, getClasspath()));
+    }
     final ShellRunner shell = getRuntime().createShellRunner();
+    shellHandle = shell.prepare(getScriptClassLoader(), resourceLoader, options);
+  }
 
-    shell.run(getRuntimeRealm(), resourceLoader, context, options);
+  @Override
+  protected void run() throws Exception {
+    final Map<String, Object> context = createContext();
+
+    ShellHandle handle = shellHandle;
+    shellHandle = null;
+    handle.run(context);
+  }
+
+  @Override
+  protected void cleanup() throws Exception {
+    if (shellHandle != null) {
+      shellHandle.cancel();
+      shellHandle = null;
+    }
+    super.cleanup();
   }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.artifact.Artifact;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Artifact include and exclude filter.
+ *
+ * Patterns are {@code groupId[:artifactId[:type[:classifier]]]}; omitted segments match anything and each segment
+ * may use {@code *} wildcards.  An artifact is accepted if it matches any include, or there are no includes, and
+ * matches no exclude.
+ *
+ * @since 2.2.0
+ */
+public class ArtifactFilter
+{
+  private final List<Pattern[]> includes;
+
+  private final List<Pattern[]> excludes;
+
+  public ArtifactFilter(final @Nullable List<String> includes, final @Nullable List<String> excludes) {
+    this.includes = compile(includes);
+    this.excludes = compile(excludes);
+  }
+
+  private static List<Pattern[]> compile(final @Nullable List<String> patterns) {
+    if (patterns == null || patterns.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Pattern[]> result = new ArrayList<Pattern[]>(patterns.size());
+    for (String pattern : patterns) {
+      String[] segments = pattern.trim().split(":");
+      Pattern[] compiled = new Pattern[segments.length];
+      for (int i = 0; i < segments.length; i++) {
+        compiled[i] = Pattern.compile(Pattern.quote(segments[i]).replace("*", "\\E.*\\Q"));
+      }
+      result.add(compiled);
+    }
+    return result;
+  }
+
+  /**
+   * True if there are no includes or excludes; all artifacts are accepted.
+   */
+  public boolean isEmpty() {
+    return includes.isEmpty() && excludes.isEmpty();
+  }
+
+  public boolean accept(final Artifact artifact) {
+    checkNotNull(artifact);
+
+    String[] coordinates = {
+        artifact.getGroupId(),
+        artifact.getArtifactId(),
+        artifact.getType(),
+        artifact.getClassifier() != null ? artifact.getClassifier() : ""
+    };
+    return (includes.isEmpty() || matchesAny(includes, coordinates)) && !matchesAny(excludes, coordinates);
+  }
+
+  private static boolean matchesAny(final List<Pattern[]> patterns, final String[] coordinates) {
+    for (Pattern[] pattern : patterns) {
+      if (matches(pattern, coordinates)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean matches(final Pattern[] pattern, final String[] coordinates) {
+    if (pattern.length > coordinates.length) {
+      return false;
+    }
+    for (int i = 0; i < pattern.length; i++) {
+      if (!pattern[i].matcher(coordinates[i]).matches()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
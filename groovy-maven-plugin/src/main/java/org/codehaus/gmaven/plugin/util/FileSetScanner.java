@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.maven.model.FileSet;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Scans the files of a {@link FileSet}.
+ *
+ * Patterns are Ant-style and relative to the file-set directory: {@code **} matches any number of directories,
+ * {@code *} any part of a name and {@code ?} a single character.  Without includes all files are included.
+ *
+ * @since 2.2.0
+ */
+public class FileSetScanner
+{
+  private final File basedir;
+
+  public FileSetScanner(final File basedir) {
+    this.basedir = checkNotNull(basedir);
+  }
+
+  /**
+   * Returns the directory of the given file-set; relative directories are resolved against the base directory.
+   */
+  public File getDirectory(final FileSet fileSet) {
+    checkNotNull(fileSet);
+    String directory = fileSet.getDirectory();
+    if (directory == null) {
+      return basedir;
+    }
+    File file = new File(directory);
+    return file.isAbsolute() ? file : new File(basedir, directory);
+  }
+
+  /**
+   * Returns the files of the given file-set, sorted by path.
+   */
+  public List<File> scan(final FileSet fileSet) {
+    List<Pattern> includes = compile(fileSet.getIncludes());
+    List<Pattern> excludes = compile(fileSet.getExcludes());
+
+    List<File> files = new ArrayList<File>();
+    scan(getDirectory(fileSet), "", includes, excludes, files);
+    return files;
+  }
+
+  private static void scan(final File dir,
+                           final String prefix,
+                           final List<Pattern> includes,
+                           final List<Pattern> excludes,
+                           final List<File> files)
+  {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    Arrays.sort(children);
+    for (File child : children) {
+      String path = prefix + child.getName();
+      if (child.isDirectory()) {
+        scan(child, path + "/", includes, excludes, files);
+      }
+      else if ((includes.isEmpty() || matches(includes, path)) && !matches(excludes, path)) {
+        files.add(child);
+      }
+    }
+  }
+
+  private static boolean matches(final List<Pattern> patterns, final String path) {
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(path).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<Pattern> compile(final List<String> patterns) {
+    if (patterns == null || patterns.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Pattern> result = new ArrayList<Pattern>(patterns.size());
+    for (String pattern : patterns) {
+      result.add(compile(pattern));
+    }
+    return result;
+  }
+
+  /**
+   * Convert an Ant-style pattern to a regular expression.
+   */
+  static Pattern compile(final String pattern) {
+    String normalized = pattern.trim().replace('\\', '/');
+    if (normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    // trailing separator includes everything below, same as Ant
+    if (normalized.endsWith("/")) {
+      normalized += "**";
+    }
+
+    StringBuilder regex = new StringBuilder();
+    int i = 0;
+    while (i < normalized.length()) {
+      char c = normalized.charAt(i);
+      if (normalized.startsWith("**/", i)) {
+        regex.append("(?:.*/)?");
+        i += 3;
+        continue;
+      }
+      if (normalized.startsWith("**", i)) {
+        regex.append(".*");
+        i += 2;
+        continue;
+      }
+      if (c == '*') {
+        regex.append("[^/]*");
+      }
+      else if (c == '?') {
+        regex.append("[^/]");
+      }
+      else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+      i++;
+    }
+    return Pattern.compile(regex.toString());
+  }
+}
@@ -15,11 +15,18 @@
  */
 package org.codehaus.gmaven.plugin.util;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Properties;
 
 import javax.annotation.Nullable;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.eclipse.aether.version.Version;
@@ -36,11 +43,22 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @Component(role=GroovyVersionHelper.class)
 public class GroovyVersionHelper
 {
+  private static final String GROOVY_SYSTEM = "groovy/lang/GroovySystem.class";
+
+  private static final String RELEASE_INFO = "META-INF/groovy-release-info.properties";
+
   private final Logger log = LoggerFactory.getLogger(getClass());
 
   @Requirement
   private VersionHelper versionHelper;
 
+  /**
+   * Detected versions by class-loader.
+   */
+  private final Cache<ClassLoader, Optional<Version>> versions = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
   public GroovyVersionHelper() {}
 
   @VisibleForTesting
@@ -48,14 +66,31 @@ public class GroovyVersionHelper
     this.versionHelper = checkNotNull(versionHelper);
   }
 
+  /**
+   * Detect the Groovy version visible from the given class-loader; results are cached for each class-loader.
+   */
   @Nullable
   public Version detectVersion(final ClassLoader classLoader) {
     checkNotNull(classLoader);
 
+    Optional<Version> version = versions.getIfPresent(classLoader);
+    if (version == null) {
+      version = Optional.fromNullable(doDetectVersion(classLoader));
+      versions.put(classLoader, version);
+    }
+    return version.orNull();
+  }
+
+  @Nullable
+  private Version doDetectVersion(final ClassLoader classLoader) {
     log.trace("Detecting Groovy version; class-loader: {}", classLoader);
 
-    // Modern versions of Groovy expose the version via GroovySystem.getVersion()
-    String raw = getVersion(classLoader, "groovy.lang.GroovySystem", "getVersion");
+    // Release metadata next to GroovySystem; avoids loading and initializing the Groovy runtime
+    String raw = getReleaseVersion(classLoader);
+    if (raw == null) {
+      // Modern versions of Groovy expose the version via GroovySystem.getVersion()
+      raw = getVersion(classLoader, "groovy.lang.GroovySystem", "getVersion");
+    }
     if (raw == null) {
       // Older versions of Groovy expose the version via InvokerHelper.getVersion()
       raw = getVersion(classLoader, "org.codehaus.groovy.runtime.InvokerHelper", "getVersion");
@@ -71,6 +106,38 @@ public class GroovyVersionHelper
     return version;
   }
 
+  /**
+   * Get version from {@code META-INF/groovy-release-info.properties} of the jar providing {@code GroovySystem}.
+   */
+  @Nullable
+  private String getReleaseVersion(final ClassLoader classLoader) {
+    URL type = classLoader.getResource(GROOVY_SYSTEM);
+    if (type == null) {
+      return null;
+    }
+
+    String location = type.toString();
+    try {
+      URL resource = new URL(location.substring(0, location.length() - GROOVY_SYSTEM.length()) + RELEASE_INFO);
+      log.trace("Release info: {}", resource);
+
+      Properties props = new Properties();
+      InputStream stream = resource.openStream();
+      try {
+        props.load(stream);
+      }
+      finally {
+        stream.close();
+      }
+      return props.getProperty("ImplementationVersion");
+    }
+    catch (IOException e) {
+      log.trace("Unable to read release info from: {}", location, e);
+    }
+
+    return null;
+  }
+
   /**
    * Get version from Groovy version helper utilities via reflection.
    */
@@ -15,10 +15,13 @@
  */
 package org.codehaus.gmaven.plugin.util;
 
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -43,4 +46,46 @@ public class Maps2
     }
     return result;
   }
+
+  /**
+   * Read-only view of the given properties, including their defaults; only {@link String} values are visible.
+   *
+   * @since 2.2.0
+   */
+  public static Map<String, String> asMap(final Properties properties) {
+    checkNotNull(properties);
+    return new AbstractMap<String, String>()
+    {
+      @Override
+      public String get(final Object key) {
+        return key instanceof String ? properties.getProperty((String) key) : null;
+      }
+
+      @Override
+      public boolean containsKey(final Object key) {
+        return get(key) != null;
+      }
+
+      @Override
+      public Set<Entry<String, String>> entrySet() {
+        return Collections.unmodifiableMap(fromProperties(properties)).entrySet();
+      }
+    };
+  }
+
+  /**
+   * Plain properties holding the entries of the given map; null values are skipped.
+   *
+   * @since 2.2.0
+   */
+  public static Properties toProperties(final Map<String, String> map) {
+    checkNotNull(map);
+    Properties result = new Properties();
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      if (entry.getValue() != null) {
+        result.setProperty(entry.getKey(), entry.getValue());
+      }
+    }
+    return result;
+  }
 }
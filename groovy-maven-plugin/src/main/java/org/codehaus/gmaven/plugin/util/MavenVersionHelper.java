@@ -23,6 +23,9 @@ import java.util.Properties;
 import javax.annotation.Nullable;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.eclipse.aether.version.Version;
@@ -44,6 +47,13 @@ public class MavenVersionHelper
   @Requirement
   private VersionHelper versionHelper;
 
+  /**
+   * Detected versions by class-loader.
+   */
+  private final Cache<ClassLoader, Optional<Version>> versions = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
   public MavenVersionHelper() {}
 
   @VisibleForTesting
@@ -51,14 +61,28 @@ public class MavenVersionHelper
     this.versionHelper = checkNotNull(versionHelper);
   }
 
+  /**
+   * Detect the Maven version visible from the given class-loader; results are cached for each class-loader.
+   */
   @Nullable
   public Version detectVersion(final ClassLoader classLoader) {
     checkNotNull(classLoader);
 
+    Optional<Version> version = versions.getIfPresent(classLoader);
+    if (version == null) {
+      version = Optional.fromNullable(doDetectVersion(classLoader));
+      versions.put(classLoader, version);
+    }
+    return version.orNull();
+  }
+
+  @Nullable
+  private Version doDetectVersion(final ClassLoader classLoader) {
     log.trace("Detecting Maven version; class-loader: {}", classLoader);
 
     // TODO: Sort out how compatible this logic is for newer/older versions of maven
 
+    // MavenCli is already loaded by Maven; its resources resolve from Maven core
     Properties props = readProperties(
         classLoader, "org.apache.maven.cli.MavenCli", "/org/apache/maven/messages/build.properties");
     String raw = props.getProperty("version");
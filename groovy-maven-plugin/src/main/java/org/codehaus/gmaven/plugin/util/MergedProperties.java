@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Joiner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Read-only view merging layers of properties; values are interpolated on lookup.
+ *
+ * A property is taken from the last layer which contains it, same as adding each layer in turn to a map.
+ * A {@code null} value hides the property, including any value of earlier layers.
+ *
+ * Values are parsed into {@link PropertyExpression}s and referenced properties are resolved first, depth-first; each
+ * property is resolved once.  A property which refers back to itself, directly or through other properties, keeps
+ * its original value and the cycle is reported.
+ *
+ * @since 2.2.0
+ */
+public class MergedProperties
+    extends AbstractMap<String, String>
+{
+  private static final Logger log = LoggerFactory.getLogger(MergedProperties.class);
+
+  /**
+   * Layers in order of precedence; highest first.
+   */
+  private final List<Map<String, String>> layers;
+
+  private final ConcurrentMap<String, Resolution> resolved = new ConcurrentHashMap<String, Resolution>();
+
+  private volatile Set<Entry<String, String>> entries;
+
+  public MergedProperties(final List<Map<String, String>> layers) {
+    checkNotNull(layers);
+    this.layers = new ArrayList<Map<String, String>>(layers);
+    Collections.reverse(this.layers);
+  }
+
+  /**
+   * Uninterpolated value of the given property.
+   */
+  @Nullable
+  private String raw(final String key) {
+    for (Map<String, String> layer : layers) {
+      if (layer.containsKey(key)) {
+        return layer.get(key);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public String get(final Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+
+    Resolution resolution = resolved.get(key);
+    if (resolution == null) {
+      synchronized (resolved) {
+        resolution = resolve((String) key, new ArrayList<String>());
+      }
+    }
+    return resolution.value;
+  }
+
+  /**
+   * Resolved value of a property.
+   */
+  private static class Resolution
+  {
+    static final Resolution MISSING = new Resolution(null, null);
+
+    @Nullable
+    final String value;
+
+    /**
+     * Cycle which prevented resolving the value, if any.
+     */
+    @Nullable
+    final List<String> cycle;
+
+    Resolution(@Nullable final String value, @Nullable final List<String> cycle) {
+      this.value = value;
+      this.cycle = cycle;
+    }
+  }
+
+  /**
+   * Resolve a property and its references.
+   *
+   * @param path Properties being resolved which led to this property.
+   */
+  private Resolution resolve(final String key, final List<String> path) {
+    Resolution resolution = resolved.get(key);
+    if (resolution != null) {
+      return resolution;
+    }
+
+    int index = path.indexOf(key);
+    if (index >= 0) {
+      // not recorded; each property on the cycle records the failure itself
+      List<String> cycle = new ArrayList<String>(path.subList(index, path.size()));
+      cycle.add(key);
+      return new Resolution(null, cycle);
+    }
+
+    String value = raw(key);
+    if (value == null) {
+      resolution = Resolution.MISSING;
+    }
+    else {
+      PropertyExpression expression = PropertyExpression.parse(value);
+      if (expression.isLiteral()) {
+        resolution = new Resolution(value, null);
+      }
+      else {
+        resolution = resolve(key, expression, path);
+      }
+    }
+
+    resolved.put(key, resolution);
+    return resolution;
+  }
+
+  private Resolution resolve(final String key, final PropertyExpression expression, final List<String> path) {
+    List<String> references = expression.getReferences();
+    List<String> values = new ArrayList<String>(references.size());
+
+    path.add(key);
+    try {
+      for (String reference : references) {
+        Resolution resolution = resolve(reference, path);
+        if (resolution.cycle != null) {
+          log.warn("Failed to interpolate: {}, using original value: {}; cycle: {}",
+              key, expression, Joiner.on(" -> ").join(resolution.cycle));
+          return new Resolution(expression.getValue(), resolution.cycle);
+        }
+        values.add(resolution.value);
+      }
+    }
+    finally {
+      path.remove(path.size() - 1);
+    }
+
+    String value = expression.render(values);
+    log.trace("Resolved: {} -> '{}'", key, value);
+    return new Resolution(value, null);
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return get(key) != null;
+  }
+
+  /**
+   * All properties; resolved on first use.
+   */
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    if (entries == null) {
+      Set<String> keys = new LinkedHashSet<String>();
+      for (Map<String, String> layer : layers) {
+        keys.addAll(layer.keySet());
+      }
+
+      Map<String, String> result = new HashMap<String, String>(keys.size());
+      for (String key : keys) {
+        String value = get(key);
+        if (value == null) {
+          log.warn("Ignoring null property: {}", key);
+          continue;
+        }
+        result.put(key, value);
+      }
+      entries = Collections.unmodifiableMap(result).entrySet();
+    }
+    return entries;
+  }
+}
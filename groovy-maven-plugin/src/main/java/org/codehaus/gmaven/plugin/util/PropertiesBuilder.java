@@ -17,23 +17,21 @@ package org.codehaus.gmaven.plugin.util;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import javax.annotation.Nullable;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.annotations.Component;
-import org.codehaus.plexus.interpolation.InterpolationException;
-import org.codehaus.plexus.interpolation.Interpolator;
-import org.codehaus.plexus.interpolation.MapBasedValueSource;
-import org.codehaus.plexus.interpolation.StringSearchInterpolator;
+import org.codehaus.plexus.component.annotations.Requirement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Helper to build merged Maven execution properties.
  *
@@ -44,6 +42,9 @@ public class PropertiesBuilder
 {
   private final Logger log = LoggerFactory.getLogger(getClass());
 
+  @Requirement
+  private PropertiesSnapshotCache snapshots;
+
   private MavenProject project;
 
   private MavenSession session;
@@ -52,6 +53,13 @@ public class PropertiesBuilder
 
   private Map<String, String> defaults;
 
+  public PropertiesBuilder() {}
+
+  @VisibleForTesting
+  public PropertiesBuilder(final PropertiesSnapshotCache snapshots) {
+    this.snapshots = checkNotNull(snapshots);
+  }
+
   public PropertiesBuilder setProject(final @Nullable MavenProject project) {
     this.project = project;
     return this;
@@ -72,24 +80,30 @@ public class PropertiesBuilder
     return this;
   }
 
+  /**
+   * Build a read-only view of merged properties; values are interpolated when first looked up.
+   *
+   * Later sources take precedence: defaults, project properties, system properties, user properties, properties.
+   */
   public Map<String, String> build() {
-    Map<String, String> props = new HashMap<String, String>();
+    List<Map<String, String>> layers = new ArrayList<Map<String, String>>(5);
     if (defaults != null) {
-      props.putAll(defaults);
+      layers.add(defaults);
     }
     if (project != null) {
-      props.putAll(Maps2.fromProperties(project.getProperties()));
+      layers.add(Maps2.asMap(project.getProperties()));
     }
     if (session != null) {
-      props.putAll(Maps2.fromProperties(session.getSystemProperties()));
-      props.putAll(Maps2.fromProperties(session.getUserProperties()));
+      // session properties rarely change; share snapshots between executions
+      layers.add(snapshots.get(session.getSystemProperties()));
+      layers.add(snapshots.get(session.getUserProperties()));
     }
     if (properties != null) {
-      props.putAll(properties);
+      layers.add(properties);
     }
 
     // resolve any dangling references which could exist due to custom properties/defaults
-    props = resolve(props);
+    Map<String, String> props = new MergedProperties(layers);
 
     if (log.isTraceEnabled()) {
       log.trace("Properties:");
@@ -102,34 +116,4 @@ public class PropertiesBuilder
 
     return props;
   }
-
-  private Map<String, String> resolve(final Map<String, String> source) {
-    Map<String, String> result = new HashMap<String, String>(source.size());
-    Interpolator interpolator = new StringSearchInterpolator();
-    interpolator.addValueSource(new MapBasedValueSource(source));
-
-    for (Entry<String, String> entry : source.entrySet()) {
-      String key = entry.getKey();
-      String value = entry.getValue();
-
-      if (value == null) {
-        log.warn("Ignoring null property: {}", key);
-        continue;
-      }
-
-      // skip unless value contains an expression
-      if (value.contains(StringSearchInterpolator.DEFAULT_START_EXPR)) {
-        try {
-          value = interpolator.interpolate(value);
-          log.trace("Resolved: {} -> '{}'", key, value);
-        }
-        catch (InterpolationException e) {
-          log.warn("Failed to interpolate: {}, using original value: {}", key, value);
-        }
-      }
-      result.put(key, value);
-    }
-
-    return result;
-  }
 }
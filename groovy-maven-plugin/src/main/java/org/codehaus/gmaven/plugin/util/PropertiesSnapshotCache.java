@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import org.codehaus.plexus.component.annotations.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of immutable {@link Properties} snapshots, such as the system and user properties of a session.
+ *
+ * A snapshot is reused while the properties hold the same entries.  Properties may be changed by anyone holding them,
+ * so each request compares the entries with the snapshot; this still enumerates the properties, but does not copy
+ * them.  Lookups then read the shared snapshot instead of the synchronized properties.
+ *
+ * @since 2.2.0
+ */
+@Component(role = PropertiesSnapshotCache.class)
+public class PropertiesSnapshotCache
+{
+  private final Logger log = LoggerFactory.getLogger(getClass());
+
+  /**
+   * Snapshots by properties instance.
+   */
+  private final Cache<Properties, Map<String, String>> snapshots = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build();
+
+  /**
+   * Returns a current snapshot of the given properties, including their defaults; only {@link String} values are
+   * included.
+   */
+  public Map<String, String> get(final Properties properties) {
+    checkNotNull(properties);
+
+    // Properties are a Hashtable; holding its monitor makes the check and copy consistent
+    synchronized (properties) {
+      Map<String, String> snapshot = snapshots.getIfPresent(properties);
+      if (snapshot != null && matches(snapshot, properties)) {
+        return snapshot;
+      }
+
+      ImmutableMap.Builder<String, String> entries = ImmutableMap.builder();
+      for (Entry<String, String> entry : Maps2.fromProperties(properties).entrySet()) {
+        if (entry.getValue() != null) {
+          entries.put(entry);
+        }
+      }
+      snapshot = entries.build();
+      snapshots.put(properties, snapshot);
+      log.trace("Snapshot of {} properties", snapshot.size());
+      return snapshot;
+    }
+  }
+
+  /**
+   * True if the properties hold exactly the entries of the snapshot.
+   */
+  private static boolean matches(final Map<String, String> snapshot, final Properties properties) {
+    int count = 0;
+    Enumeration<?> names = properties.propertyNames();
+    while (names.hasMoreElements()) {
+      String name = (String) names.nextElement();
+      String value = properties.getProperty(name);
+      if (value != null) {
+        if (!value.equals(snapshot.get(name))) {
+          return false;
+        }
+        count++;
+      }
+    }
+    return count == snapshot.size();
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Property value parsed into literal text and {@code ${name}} references.
+ *
+ * An unterminated or empty reference is literal text.
+ *
+ * @since 2.2.0
+ */
+public final class PropertyExpression
+{
+  private static final String START = "${";
+
+  private static final String END = "}";
+
+  private final String value;
+
+  /**
+   * Literal text and references, alternating; starts and ends with literal text, which may be empty.
+   */
+  private final List<String> segments;
+
+  private PropertyExpression(final String value, final List<String> segments) {
+    this.value = value;
+    this.segments = segments;
+  }
+
+  public static PropertyExpression parse(final String value) {
+    checkNotNull(value);
+
+    if (!value.contains(START)) {
+      return new PropertyExpression(value, Collections.singletonList(value));
+    }
+
+    List<String> segments = new ArrayList<String>();
+    StringBuilder literal = new StringBuilder();
+    int pos = 0;
+    while (true) {
+      int start = value.indexOf(START, pos);
+      int end = start < 0 ? -1 : value.indexOf(END, start + START.length());
+      if (end < 0) {
+        literal.append(value, pos, value.length());
+        break;
+      }
+      String name = value.substring(start + START.length(), end);
+      literal.append(value, pos, start);
+      if (name.length() == 0) {
+        literal.append(START).append(END);
+      }
+      else {
+        segments.add(literal.toString());
+        segments.add(name);
+        literal.setLength(0);
+      }
+      pos = end + END.length();
+    }
+    segments.add(literal.toString());
+
+    return new PropertyExpression(value, Collections.unmodifiableList(segments));
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public boolean isLiteral() {
+    return segments.size() == 1;
+  }
+
+  /**
+   * Names of referenced properties, in order of appearance.
+   */
+  public List<String> getReferences() {
+    List<String> result = new ArrayList<String>(segments.size() / 2);
+    for (int i = 1; i < segments.size(); i += 2) {
+      result.add(segments.get(i));
+    }
+    return result;
+  }
+
+  /**
+   * Value with references replaced; references without a value are kept as-is.
+   *
+   * @param values Values of {@link #getReferences()}, in the same order; elements may be {@code null}.
+   */
+  public String render(final List<String> values) {
+    checkNotNull(values);
+    if (isLiteral()) {
+      return value;
+    }
+
+    StringBuilder buff = new StringBuilder(value.length());
+    for (int i = 0; i < segments.size(); i++) {
+      String segment = segments.get(i);
+      if (i % 2 == 0) {
+        buff.append(segment);
+      }
+      else {
+        String replacement = values.get(i / 2);
+        if (replacement != null) {
+          buff.append(replacement);
+        }
+        else {
+          buff.append(START).append(segment).append(END);
+        }
+      }
+    }
+    return buff.toString();
+  }
+
+  @Override
+  public String toString() {
+    return value;
+  }
+}
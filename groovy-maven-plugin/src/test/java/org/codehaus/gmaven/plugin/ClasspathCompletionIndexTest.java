@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ClasspathCompletionIndex}.
+ */
+public class ClasspathCompletionIndexTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File cacheDir;
+
+  private File jar;
+
+  @Before
+  public void setUp() throws Exception {
+    cacheDir = new File(temp.getRoot(), "cache");
+    jar = temp.newFile("test.jar");
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(jar));
+    try {
+      for (String name : Arrays.asList("com/example/Foo.class", "com/example/Foo$Inner.class",
+          "com/example/util/Bar.class", "com/example/package-info.class", "META-INF/MANIFEST.MF", "Root.class")) {
+        output.putNextEntry(new JarEntry(name));
+        output.closeEntry();
+      }
+    }
+    finally {
+      output.close();
+    }
+  }
+
+  @Test
+  public void indexesPackagesAndTopLevelClasses() throws Exception {
+    ClasspathCompletionIndex underTest = ClasspathCompletionIndex.load(cacheDir, Collections.singletonList(jar));
+
+    assertThat(underTest.getContents(""), contains("Root", "com"));
+    assertThat(underTest.getContents("com"), contains("example"));
+    assertThat(underTest.getContents("com.example"), contains("Foo", "util"));
+    assertThat(underTest.getContents("com.example.util"), contains("Bar"));
+    assertThat(underTest.getContents("org"), is(empty()));
+  }
+
+  @Test
+  public void readsPersistedIndexOfUnchangedJars() throws Exception {
+    ClasspathCompletionIndex.load(cacheDir, Collections.singletonList(jar));
+    assertThat(cacheDir.list().length, is(1));
+
+    // same fingerprint; the jar content is not read again
+    long length = jar.length();
+    long modified = jar.lastModified();
+    Files.write(new byte[(int) length], jar);
+    assertThat(jar.setLastModified(modified), is(true));
+
+    ClasspathCompletionIndex underTest = ClasspathCompletionIndex.load(cacheDir, Collections.singletonList(jar));
+    assertThat(underTest.getContents("com.example"), contains("Foo", "util"));
+  }
+
+  @Test
+  public void walksDirectories() throws Exception {
+    File classes = temp.newFolder("classes");
+    File file = new File(classes, "org/example/Baz.class");
+    Files.createParentDirs(file);
+    Files.touch(file);
+
+    ClasspathCompletionIndex underTest = ClasspathCompletionIndex.load(cacheDir, Arrays.asList(jar, classes));
+    assertThat(underTest.getContents(""), contains("Root", "com", "org"));
+    assertThat(underTest.getContents("org.example"), contains("Baz"));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.util.concurrent.Futures;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ExecuteMojo}.
+ */
+public class ExecuteMojoTest
+    extends TestSupport
+{
+  private ExecuteMojo underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new ExecuteMojo();
+  }
+
+  private static Future<Object> succeeded() {
+    return Futures.immediateFuture(null);
+  }
+
+  private static Future<Object> failed(final Throwable cause) {
+    return Futures.immediateFailedFuture(cause);
+  }
+
+  @Test
+  public void awaitAll_allSucceeded() throws Exception {
+    underTest.awaitAll(Arrays.asList("a", "b"), Arrays.asList(succeeded(), succeeded()));
+  }
+
+  @Test
+  public void awaitAll_singleFailureRethrown() throws Exception {
+    MojoExecutionException failure = new MojoExecutionException("boom");
+    List<Future<Object>> futures = Arrays.asList(succeeded(), failed(failure), succeeded());
+    try {
+      underTest.awaitAll(Arrays.asList("a", "b", "c"), futures);
+      fail();
+    }
+    catch (MojoExecutionException e) {
+      assertThat(e, sameInstance(failure));
+    }
+  }
+
+  @Test
+  public void awaitAll_singleRuntimeFailureRethrown() throws Exception {
+    IllegalStateException failure = new IllegalStateException("boom");
+    try {
+      underTest.awaitAll(Arrays.asList("a"), Arrays.asList(failed(failure)));
+      fail();
+    }
+    catch (IllegalStateException e) {
+      assertThat(e, sameInstance(failure));
+    }
+  }
+
+  @Test
+  public void awaitAll_multipleFailuresAggregated() throws Exception {
+    MojoExecutionException first = new MojoExecutionException("first failed");
+    RuntimeException second = new RuntimeException(new MojoExecutionException("second failed"));
+    List<Future<Object>> futures = Arrays.asList(failed(first), succeeded(), failed(second));
+    try {
+      underTest.awaitAll(Arrays.asList("a", "b", "c"), futures);
+      fail();
+    }
+    catch (MojoExecutionException e) {
+      assertThat(e.getMessage(), is("2 of 3 scripts failed: first failed; second failed"));
+      assertThat(e.getCause(), sameInstance((Throwable) first));
+    }
+  }
+
+  @Test
+  public void failureMessage_mojoExecutionException() {
+    assertThat(ExecuteMojo.failureMessage(new MojoExecutionException("script failed")), is("script failed"));
+  }
+
+  @Test
+  public void failureMessage_nestedMojoExecutionException() {
+    Throwable failure = new IllegalStateException(new MojoExecutionException("script failed"));
+    assertThat(ExecuteMojo.failureMessage(failure), is("script failed"));
+  }
+
+  @Test
+  public void failureMessage_otherFailure() {
+    assertThat(ExecuteMojo.failureMessage(new IllegalStateException("broken")),
+        is("java.lang.IllegalStateException: broken"));
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests for {@link ExecutionWatchdog}.
+ */
+public class ExecutionWatchdogTest
+    extends TestSupport
+{
+  @Test
+  public void unlimitedCallsOnCurrentThread() throws Exception {
+    ExecutionWatchdog underTest = new ExecutionWatchdog(0, 0, 0);
+    assertThat(underTest.isLimited(), is(false));
+
+    String name = underTest.call("test", new Callable<String>()
+    {
+      @Override
+      public String call() {
+        return Thread.currentThread().getName();
+      }
+    });
+    assertThat(name, is(Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void returnsResultWithinBudget() throws Exception {
+    ExecutionWatchdog underTest = new ExecutionWatchdog(10000, 0, 0);
+
+    String name = underTest.call("test", new Callable<String>()
+    {
+      @Override
+      public String call() {
+        return Thread.currentThread().getName();
+      }
+    });
+    assertThat(name, startsWith("gmaven-watchdog-"));
+  }
+
+  @Test
+  public void rethrowsFailure() throws Exception {
+    ExecutionWatchdog underTest = new ExecutionWatchdog(10000, 0, 0);
+
+    try {
+      underTest.call("test", new Callable<Object>()
+      {
+        @Override
+        public Object call() throws Exception {
+          throw new IllegalStateException("boom");
+        }
+      });
+      fail();
+    }
+    catch (IllegalStateException e) {
+      assertThat(e.getMessage(), is("boom"));
+    }
+  }
+
+  @Test
+  public void interruptsOnTimeout() throws Exception {
+    ExecutionWatchdog underTest = new ExecutionWatchdog(200, 0, 0, 1000);
+    final boolean[] interrupted = new boolean[1];
+
+    try {
+      underTest.call("test", new Callable<Object>()
+      {
+        @Override
+        public Object call() throws Exception {
+          try {
+            Thread.sleep(10000);
+          }
+          catch (InterruptedException e) {
+            interrupted[0] = true;
+          }
+          return null;
+        }
+      });
+      fail();
+    }
+    catch (MojoExecutionException e) {
+      log(e.getMessage());
+      assertThat(e.getMessage(), containsString("Script test exceeded timeout of 200 ms"));
+      assertThat(e.getMessage(), containsString("elapsed: "));
+    }
+    assertThat(interrupted[0], is(true));
+  }
+
+  @Test
+  public void abandonsTaskIgnoringInterrupt() throws Exception {
+    ExecutionWatchdog underTest = new ExecutionWatchdog(100, 0, 0, 100);
+    final Object lock = new Object();
+
+    long start = System.currentTimeMillis();
+    try {
+      underTest.call("test", new Callable<Object>()
+      {
+        @Override
+        public Object call() throws Exception {
+          while (true) {
+            try {
+              synchronized (lock) {
+                lock.wait();
+              }
+            }
+            catch (InterruptedException e) {
+              // ignore
+            }
+          }
+        }
+      });
+      fail();
+    }
+    catch (MojoExecutionException e) {
+      assertThat(e.getMessage(), containsString("timeout"));
+    }
+    assertThat(System.currentTimeMillis() - start < 5000, is(true));
+  }
+
+  @Test
+  public void interruptsOnCpuBudget() throws Exception {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled());
+
+    ExecutionWatchdog underTest = new ExecutionWatchdog(0, 200, 0, 1000);
+    try {
+      underTest.call("test", new Callable<Object>()
+      {
+        @Override
+        public Object call() throws Exception {
+          long count = 0;
+          while (!Thread.currentThread().isInterrupted()) {
+            count++;
+          }
+          return count;
+        }
+      });
+      fail();
+    }
+    catch (MojoExecutionException e) {
+      log(e.getMessage());
+      assertThat(e.getMessage(), containsString("exceeded CPU budget of 200 ms"));
+      assertThat(e.getMessage(), containsString("CPU: "));
+    }
+  }
+
+  @Test
+  public void withinCpuBudgetWhileWaiting() throws Exception {
+    ExecutionWatchdog underTest = new ExecutionWatchdog(0, 200, 0, 1000);
+    Object result = underTest.call("test", new Callable<Object>()
+    {
+      @Override
+      public Object call() throws Exception {
+        Thread.sleep(400);
+        return "done";
+      }
+    });
+    assertThat(result, is((Object) "done"));
+  }
+
+  @Test
+  public void interruptsOnAllocationBudget() throws Exception {
+    assumeTrue(ExecutionWatchdog.isAllocationMeasured());
+
+    ExecutionWatchdog underTest = new ExecutionWatchdog(0, 0, 1024 * 1024, 1000);
+    try {
+      underTest.call("test", new Callable<Object>()
+      {
+        @Override
+        public Object call() throws Exception {
+          Object[] retained = new Object[16];
+          int i = 0;
+          while (!Thread.currentThread().isInterrupted()) {
+            retained[i++ % retained.length] = new byte[64 * 1024];
+            Thread.sleep(1);
+          }
+          return retained;
+        }
+      });
+      fail();
+    }
+    catch (MojoExecutionException e) {
+      log(e.getMessage());
+      assertThat(e.getMessage(), containsString("exceeded allocation budget of 1048576 bytes"));
+      assertThat(e.getMessage(), containsString("allocated: "));
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.net.URL;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link FlightEvents}.
+ */
+public class FlightEventsTest
+    extends TestSupport
+{
+  private final FlightEvents underTest = FlightEvents.get();
+
+  @Test
+  public void available() {
+    assertThat(underTest, notNullValue());
+    assertThat(FlightEvents.get(), sameInstance(underTest));
+  }
+
+  @Test
+  public void lookupReturnsResult() throws Exception {
+    URL url = new URL("file:/foo/Bar.groovy");
+    assertThat(underTest.startLookup("Bar").stop(url, "scriptpath"), is(url));
+    assertThat(underTest.startLookup("Baz").stop(null, "default"), nullValue());
+  }
+
+  @Test
+  public void eventsWithoutRecording() {
+    underTest.startRealmCreation(2).stop();
+    underTest.startScriptExecution("module", "execution", "script").stop();
+    underTest.bindingCreated(3, 1);
+    underTest.scriptCompiled("script", 1, 1000);
+  }
+}
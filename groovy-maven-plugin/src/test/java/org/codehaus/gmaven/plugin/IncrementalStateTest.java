@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link IncrementalState}.
+ */
+public class IncrementalStateTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private IncrementalState underTest;
+
+  private File output;
+
+  private List<File> outputs;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new IncrementalState(new File(temp.getRoot(), "state/execution.properties"));
+    output = temp.newFile("output.txt");
+    Files.write("generated", output, Charsets.UTF_8);
+    outputs = Arrays.asList(output);
+  }
+
+  @Test
+  public void notUpToDateWithoutState() {
+    assertThat(underTest.isUpToDate("abc", outputs), is(false));
+  }
+
+  @Test
+  public void upToDateAfterRecord() throws Exception {
+    underTest.record("abc", outputs);
+    assertThat(underTest.isUpToDate("abc", outputs), is(true));
+    assertThat(underTest.isUpToDate("def", outputs), is(false));
+  }
+
+  @Test
+  public void notUpToDateWhenOutputModified() throws Exception {
+    underTest.record("abc", outputs);
+    Files.write("modified output", output, Charsets.UTF_8);
+    assertThat(underTest.isUpToDate("abc", outputs), is(false));
+  }
+
+  @Test
+  public void notUpToDateWhenOutputMissing() throws Exception {
+    underTest.record("abc", outputs);
+    output.delete();
+    assertThat(underTest.isUpToDate("abc", Collections.<File>emptyList()), is(false));
+  }
+
+  @Test
+  public void notUpToDateAfterClear() throws Exception {
+    underTest.record("abc", outputs);
+    underTest.clear();
+    assertThat(underTest.getFile().exists(), is(false));
+    assertThat(underTest.isUpToDate("abc", outputs), is(false));
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.Attributes.Name;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link IndexedClassLoader}.
+ */
+public class IndexedClassLoaderTest
+    extends TestSupport
+{
+  private static final String SAMPLE_CLASS = Sample.class.getName();
+
+  private static final String SAMPLE_PATH = SAMPLE_CLASS.replace('.', '/') + ".class";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File first;
+
+  private File duplicate;
+
+  private File second;
+
+  private IndexedClassLoader underTest;
+
+  public static class Sample
+  {
+    // empty
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    byte[] sample;
+    InputStream input = getClass().getClassLoader().getResourceAsStream(SAMPLE_PATH);
+    try {
+      sample = ByteStreams.toByteArray(input);
+    }
+    finally {
+      input.close();
+    }
+
+    first = jar("first.jar", "a/resource.txt", "first".getBytes("UTF-8"), SAMPLE_PATH, sample);
+    duplicate = temp.newFile("duplicate.jar");
+    Files.copy(first, duplicate);
+    second = jar("second.jar", "a/resource.txt", "second".getBytes("UTF-8"));
+
+    underTest = new IndexedClassLoader(getClass().getClassLoader(), Arrays.asList(first, duplicate, second));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (underTest != null) {
+      underTest.close();
+    }
+  }
+
+  private File jar(final String name, final Object... entries) throws Exception {
+    File file = temp.newFile(name);
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(file));
+    try {
+      for (int i = 0; i < entries.length; i += 2) {
+        output.putNextEntry(new JarEntry((String) entries[i]));
+        output.write((byte[]) entries[i + 1]);
+        output.closeEntry();
+      }
+    }
+    finally {
+      output.close();
+    }
+    return file;
+  }
+
+  private File manifestJar(final File file, final String classPath) throws Exception {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Name.CLASS_PATH, classPath);
+    new JarOutputStream(new FileOutputStream(file), manifest).close();
+    return file;
+  }
+
+  @Test
+  public void manifestClassPathFollowsReferencingJar() throws Exception {
+    File lib = temp.newFolder("lib");
+    File classes = temp.newFolder("classes");
+    File dependency = manifestJar(new File(lib, "dependency.jar"), "../second.jar");
+    File main = manifestJar(temp.newFile("main.jar"), "lib/dependency.jar missing.jar classes/ second.jar");
+
+    List<File> files = IndexedClassLoader.withManifestClassPath(Arrays.asList(main, first));
+    assertThat(files, contains(main, dependency, second, classes, first));
+  }
+
+  @Test
+  public void withoutManifestClassPathUnchanged() throws Exception {
+    assertThat(IndexedClassLoader.withManifestClassPath(Arrays.asList(first, second)), contains(first, second));
+  }
+
+  @Test
+  public void duplicateJarsIgnored() {
+    assertThat(underTest.getFiles(), contains(first, second));
+  }
+
+  @Test
+  public void classLoadedFromJarBeforeParent() throws Exception {
+    Class<?> type = underTest.loadClass(SAMPLE_CLASS);
+    assertThat(type.getClassLoader(), is((ClassLoader) underTest));
+    assertThat(type, not(sameInstance((Class) Sample.class)));
+    assertThat(underTest.loadClass(SAMPLE_CLASS), sameInstance((Class) type));
+    assertThat(type.getProtectionDomain().getCodeSource().getLocation(), is(first.toURI().toURL()));
+  }
+
+  @Test
+  public void classOfUnindexedPackageLoadedFromParent() throws Exception {
+    assertThat(underTest.loadClass(TestSupport.class.getName()), sameInstance((Class) TestSupport.class));
+  }
+
+  @Test(expected = ClassNotFoundException.class)
+  public void missingClass() throws Exception {
+    underTest.loadClass("a.Missing");
+  }
+
+  @Test
+  public void resourceFromFirstJar() throws Exception {
+    URL url = underTest.getResource("a/resource.txt");
+    assertThat(url.toString(), endsWith("first.jar!/a/resource.txt"));
+    assertThat(new String(ByteStreams.toByteArray(url.openStream()), "UTF-8"), is("first"));
+  }
+
+  @Test
+  public void resourcesFromEachJar() throws Exception {
+    List<URL> urls = Collections.list(underTest.getResources("a/resource.txt"));
+    assertThat(urls.size(), is(2));
+    assertThat(urls.get(0).toString(), endsWith("first.jar!/a/resource.txt"));
+    assertThat(urls.get(1).toString(), endsWith("second.jar!/a/resource.txt"));
+  }
+
+  @Test
+  public void missingResource() {
+    assertThat(underTest.getResource("a/missing.txt"), nullValue());
+    assertThat(underTest.getResource("b/missing.txt"), nullValue());
+  }
+}
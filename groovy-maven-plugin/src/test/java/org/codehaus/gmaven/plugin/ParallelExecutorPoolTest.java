@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.util.concurrent.ExecutorService;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ParallelExecutorPool}.
+ */
+public class ParallelExecutorPoolTest
+    extends TestSupport
+{
+  private ParallelExecutorPool underTest;
+
+  private final Object session = new Object();
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new ParallelExecutorPool();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.dispose();
+  }
+
+  @Test
+  public void sharedWithinSession() {
+    ExecutorService executor = underTest.acquire(session, 2);
+    assertThat(underTest.acquire(session, 2), sameInstance(executor));
+  }
+
+  @Test
+  public void shutDownWhenReleased() {
+    ExecutorService executor = underTest.acquire(session, 2);
+    underTest.release(session);
+
+    assertThat(executor.isShutdown(), is(true));
+    assertThat(underTest.acquire(session, 2), not(sameInstance(executor)));
+  }
+
+  @Test
+  public void releaseOfOtherSessionIgnored() {
+    ExecutorService executor = underTest.acquire(session, 2);
+    underTest.release(new Object());
+
+    assertThat(executor.isShutdown(), is(false));
+  }
+
+  @Test
+  public void shutDownWhenSessionChanged() {
+    ExecutorService executor = underTest.acquire(session, 2);
+    ExecutorService other = underTest.acquire(new Object(), 2);
+
+    assertThat(executor.isShutdown(), is(true));
+    assertThat(other, not(sameInstance(executor)));
+  }
+
+  @Test
+  public void shutDownWhenDisposed() {
+    ExecutorService executor = underTest.acquire(session, 2);
+    underTest.dispose();
+
+    assertThat(executor.isShutdown(), is(true));
+  }
+}
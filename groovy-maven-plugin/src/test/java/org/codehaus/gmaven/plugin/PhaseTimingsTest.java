@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.codehaus.gmaven.adapter.PhaseRecorder.Phase;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link PhaseTimings}.
+ */
+public class PhaseTimingsTest
+    extends TestSupport
+{
+  private PhaseTimings underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new PhaseTimings();
+  }
+
+  @Test
+  public void nestedPhases() {
+    Phase outer = underTest.start("outer");
+    underTest.start("inner").stop();
+    outer.stop();
+    underTest.start("next").stop();
+
+    assertThat(underTest.getPhases(), hasSize(2));
+    PhaseTimings.Record record = underTest.getPhases().get(0);
+    assertThat(record.getName(), is("outer"));
+    assertThat(record.getWallNanos(), greaterThanOrEqualTo(0L));
+    assertThat(record.getPhases(), hasSize(1));
+    assertThat(record.getPhases().get(0).getName(), is("inner"));
+    assertThat(underTest.getPhases().get(1).getName(), is("next"));
+  }
+
+  @Test
+  public void stoppingOuterPhaseStopsNested() {
+    Phase outer = underTest.start("outer");
+    underTest.start("unstopped");
+    outer.stop();
+    underTest.start("next").stop();
+
+    assertThat(underTest.getPhases(), hasSize(2));
+    assertThat(underTest.getPhases().get(1).getName(), is("next"));
+  }
+
+  @Test
+  public void stopIsIdempotent() {
+    Phase phase = underTest.start("phase");
+    phase.stop();
+    long wall = underTest.getPhases().get(0).getWallNanos();
+    phase.stop();
+
+    assertThat(underTest.getPhases().get(0).getWallNanos(), is(wall));
+  }
+
+  @Test
+  public void writeJson() throws Exception {
+    Phase outer = underTest.start("outer");
+    underTest.start("inner").stop();
+    outer.stop();
+
+    Map<String, String> attributes = new LinkedHashMap<String, String>();
+    attributes.put("goal", "execute");
+    attributes.put("quoted", "a\"b\\c");
+
+    StringBuilder buff = new StringBuilder();
+    underTest.writeJson(buff, attributes);
+    String json = buff.toString();
+    log(json);
+
+    assertThat(json, containsString("\"goal\": \"execute\""));
+    assertThat(json, containsString("\"quoted\": \"a\\\"b\\\\c\""));
+    assertThat(json, containsString("{ \"name\": \"outer\", \"wallNanos\": "));
+    assertThat(json, containsString("{ \"name\": \"inner\", \"wallNanos\": "));
+    assertThat(json, containsString("\"allocatedBytes\": "));
+  }
+}
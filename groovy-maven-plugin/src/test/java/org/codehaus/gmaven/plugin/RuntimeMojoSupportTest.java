@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Build;
+import org.codehaus.gmaven.plugin.util.ArtifactFilter;
+import org.codehaus.plexus.classworlds.ClassWorld;
+import org.codehaus.plexus.classworlds.realm.ClassRealm;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link RuntimeMojoSupport}.
+ */
+public class RuntimeMojoSupportTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private RuntimeMojoSupport underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new RuntimeMojoSupport()
+    {
+      @Override
+      protected void run() throws Exception {
+        // empty
+      }
+    };
+  }
+
+  /**
+   * Request exposing the resolved degree of concurrency, as Maven 3.x does.
+   */
+  public static class ResolvedRequest
+  {
+    private final int degree;
+
+    public ResolvedRequest(final int degree) {
+      this.degree = degree;
+    }
+
+    public int getDegreeOfConcurrency() {
+      return degree;
+    }
+  }
+
+  /**
+   * Request exposing only the configured thread count.
+   */
+  public static class ConfiguredRequest
+  {
+    private final String threads;
+
+    public ConfiguredRequest(final String threads) {
+      this.threads = threads;
+    }
+
+    public String getThreadCount() {
+      return threads;
+    }
+  }
+
+  /**
+   * Request failing to provide the degree of concurrency.
+   */
+  public static class FailingRequest
+  {
+    public int getDegreeOfConcurrency() {
+      throw new IllegalStateException();
+    }
+  }
+
+  @Test
+  public void degreeOfConcurrency_resolved() {
+    assertThat(underTest.degreeOfConcurrency(new ResolvedRequest(4), 8), is(4));
+  }
+
+  @Test
+  public void degreeOfConcurrency_resolvedAtLeastOne() {
+    assertThat(underTest.degreeOfConcurrency(new ResolvedRequest(0), 8), is(1));
+  }
+
+  @Test
+  public void degreeOfConcurrency_configuredCount() {
+    assertThat(underTest.degreeOfConcurrency(new ConfiguredRequest("3"), 8), is(3));
+  }
+
+  @Test
+  public void degreeOfConcurrency_configuredPerCore() {
+    assertThat(underTest.degreeOfConcurrency(new ConfiguredRequest("1.5C"), 4), is(6));
+    assertThat(underTest.degreeOfConcurrency(new ConfiguredRequest("0.1C"), 4), is(1));
+  }
+
+  @Test
+  public void degreeOfConcurrency_notConfigured() {
+    assertThat(underTest.degreeOfConcurrency(new ConfiguredRequest(null), 8), is(1));
+  }
+
+  @Test
+  public void degreeOfConcurrency_configuredAtLeastOne() {
+    assertThat(underTest.degreeOfConcurrency(new ConfiguredRequest("0"), 8), is(1));
+  }
+
+  @Test
+  public void degreeOfConcurrency_invalidConfiguration() {
+    assertThat(underTest.degreeOfConcurrency(new ConfiguredRequest("many"), 8), is(1));
+    assertThat(underTest.degreeOfConcurrency(new ConfiguredRequest("xC"), 8), is(1));
+  }
+
+  @Test
+  public void degreeOfConcurrency_unsupportedRequest() {
+    assertThat(underTest.degreeOfConcurrency(new Object(), 8), is(1));
+  }
+
+  @Test
+  public void degreeOfConcurrency_failingRequest() {
+    assertThat(underTest.degreeOfConcurrency(new FailingRequest(), 8), is(1));
+  }
+
+  public static class Sample
+  {
+    // empty
+  }
+
+  private File sampleJar() throws Exception {
+    String path = Sample.class.getName().replace('.', '/') + ".class";
+    File file = temp.newFile("dependency.jar");
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(file));
+    try {
+      InputStream input = getClass().getClassLoader().getResourceAsStream(path);
+      try {
+        output.putNextEntry(new JarEntry(path));
+        ByteStreams.copy(input, output);
+        output.closeEntry();
+      }
+      finally {
+        input.close();
+      }
+    }
+    finally {
+      output.close();
+    }
+    return file;
+  }
+
+  @Test
+  public void createRealm_testScopeIndexesJars() throws Exception {
+    File classes = temp.newFolder("classes");
+    File testClasses = temp.newFolder("test-classes");
+    Files.write("test".getBytes("UTF-8"), new File(testClasses, "resource.txt"));
+    Build build = new Build();
+    build.setOutputDirectory(classes.getPath());
+    build.setTestOutputDirectory(testClasses.getPath());
+
+    File jar = sampleJar();
+    Artifact artifact = mock(Artifact.class);
+    when(artifact.getScope()).thenReturn("test");
+    when(artifact.getFile()).thenReturn(jar);
+
+    List<File> classpath = underTest.additionalClasspath(ClasspathScope.test, build,
+        Collections.singleton(artifact), new ArtifactFilter(null, null));
+    assertThat(classpath, contains(classes, testClasses, jar));
+
+    ClassWorld classWorld = new ClassWorld();
+    ClassRealm realm = underTest.createRealm(classWorld, getClass().getClassLoader(), classpath);
+    try {
+      // directories are realm entries, searched before the indexed jars
+      assertThat(realm.getURLs(), arrayContaining(classes.toURI().toURL(), testClasses.toURI().toURL()));
+      assertThat(realm.getResource("resource.txt"), is(new URL(testClasses.toURI().toURL(), "resource.txt")));
+
+      ClassLoader jars = realm.getParentClassLoader();
+      assertThat(jars, instanceOf(IndexedClassLoader.class));
+      assertThat(((IndexedClassLoader) jars).getFiles(), contains(jar));
+      assertThat(realm.loadClass(Sample.class.getName()).getClassLoader(), sameInstance(jars));
+    }
+    finally {
+      classWorld.disposeRealm(realm.getId());
+      ((IndexedClassLoader) realm.getParentClassLoader()).close();
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.codehaus.gmaven.adapter.GroovyRuntime;
+import org.codehaus.plexus.classworlds.ClassWorld;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link RuntimeRealmPool}.
+ */
+public class RuntimeRealmPoolTest
+    extends TestSupport
+{
+  private RuntimeRealmPool underTest;
+
+  private AtomicInteger createCount;
+
+  private GroovyRuntime runtime;
+
+  private Callable<RuntimeRealmPool.Entry> factory;
+
+  private ClassLoader parent;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new RuntimeRealmPool();
+    createCount = new AtomicInteger(0);
+    runtime = mock(GroovyRuntime.class);
+    parent = getClass().getClassLoader();
+
+    factory = new Callable<RuntimeRealmPool.Entry>()
+    {
+      @Override
+      public RuntimeRealmPool.Entry call() throws Exception {
+        ClassWorld world = new ClassWorld();
+        String id = "test-" + createCount.incrementAndGet();
+        return new RuntimeRealmPool.Entry(world, world.newRealm(id, parent), runtime);
+      }
+    };
+  }
+
+  @Test
+  public void acquire_sameClasspathReusesEntry() throws Exception {
+    List<File> classpath = Collections.singletonList(util.createTempFile());
+    Object session = new Object();
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(session, parent, classpath, factory);
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(session, parent, classpath, factory);
+
+    assertThat(entry1, sameInstance(entry2));
+    assertThat(createCount.get(), is(1));
+    verify(runtime, never()).cleanup();
+  }
+
+  @Test
+  public void acquire_differentClasspathCreatesEntry() throws Exception {
+    Object session = new Object();
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(session, parent, Collections.<File>emptyList(), factory);
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(session, parent,
+        Collections.singletonList(util.createTempFile()), factory);
+
+    assertThat(entry1, not(sameInstance(entry2)));
+    assertThat(createCount.get(), is(2));
+  }
+
+  @Test
+  public void acquire_directoryIsNotPooled() throws Exception {
+    List<File> classpath = Collections.singletonList(util.createTempDir());
+
+    RuntimeRealmPool.Entry entry = underTest.acquire(new Object(), parent, classpath, factory);
+
+    assertThat(entry, nullValue());
+    assertThat(createCount.get(), is(0));
+  }
+
+  @Test
+  public void acquire_newSessionDisposesEntries() throws Exception {
+    List<File> classpath = Collections.emptyList();
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(new Object(), parent, classpath, factory);
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(new Object(), parent, classpath, factory);
+
+    assertThat(entry1, not(sameInstance(entry2)));
+    verify(runtime).cleanup();
+  }
+
+  @Test
+  public void acquire_retainedEntrySurvivesNewSession() throws Exception {
+    List<File> classpath = Collections.singletonList(util.createTempFile());
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(new Object(), parent, classpath, 60000, factory);
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(new Object(), parent, classpath, 60000, factory);
+
+    assertThat(entry1, sameInstance(entry2));
+    verify(runtime, never()).cleanup();
+  }
+
+  @Test
+  public void acquire_retainedEntryDisposedWhenClasspathChanged() throws Exception {
+    File jar = util.createTempFile();
+    List<File> classpath = Collections.singletonList(jar);
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(new Object(), parent, classpath, 60000, factory);
+    jar.setLastModified(jar.lastModified() - 60000);
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(new Object(), parent, classpath, 60000, factory);
+
+    assertThat(entry1, not(sameInstance(entry2)));
+    verify(runtime).cleanup();
+  }
+
+  @Test
+  public void acquire_expiredEntryDisposed() throws Exception {
+    List<File> classpath = Collections.emptyList();
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(new Object(), parent, classpath, 1, factory);
+    Thread.sleep(10);
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(new Object(), parent, classpath, 1, factory);
+
+    assertThat(entry1, not(sameInstance(entry2)));
+    verify(runtime).cleanup();
+  }
+
+  @Test
+  public void release_disposesEntriesOfSession() throws Exception {
+    Object session = new Object();
+    List<File> classpath = Collections.emptyList();
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(session, parent, classpath, factory);
+    underTest.release(session);
+    verify(runtime).cleanup();
+
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(new Object(), parent, classpath, factory);
+    assertThat(entry1, not(sameInstance(entry2)));
+  }
+
+  @Test
+  public void release_otherSessionIgnored() throws Exception {
+    Object session = new Object();
+    List<File> classpath = Collections.emptyList();
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(session, parent, classpath, factory);
+    underTest.release(new Object());
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(session, parent, classpath, factory);
+
+    assertThat(entry1, sameInstance(entry2));
+    verify(runtime, never()).cleanup();
+  }
+
+  @Test
+  public void release_retainedEntrySurvives() throws Exception {
+    Object session = new Object();
+    List<File> classpath = Collections.singletonList(util.createTempFile());
+
+    RuntimeRealmPool.Entry entry1 = underTest.acquire(session, parent, classpath, 60000, factory);
+    underTest.release(session);
+    RuntimeRealmPool.Entry entry2 = underTest.acquire(new Object(), parent, classpath, 60000, factory);
+
+    assertThat(entry1, sameInstance(entry2));
+    verify(runtime, never()).cleanup();
+  }
+}
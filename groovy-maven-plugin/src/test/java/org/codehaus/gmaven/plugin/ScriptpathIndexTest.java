@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ScriptpathIndex}, and its use by {@link MojoResourceLoader}.
+ */
+public class ScriptpathIndexTest
+    extends TestSupport
+{
+  private static final long PAST = System.currentTimeMillis() - 60 * 1000;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File first;
+
+  private File second;
+
+  @Before
+  public void setUp() throws Exception {
+    first = temp.newFolder("first");
+    second = temp.newFolder("second");
+    touch(new File(first, "a/b/C.groovy"));
+    touch(new File(second, "a/b/C.groovy"));
+    touch(new File(second, "D.groovy"));
+    touch(new File(second, "notes.txt"));
+    age(first, second, new File(first, "a"), new File(first, "a/b"), new File(second, "a"), new File(second, "a/b"));
+  }
+
+  private static void touch(final File file) throws Exception {
+    file.getParentFile().mkdirs();
+    file.createNewFile();
+  }
+
+  private static void age(final File... dirs) {
+    for (File dir : dirs) {
+      dir.setLastModified(PAST);
+    }
+  }
+
+  @Test
+  public void firstScriptpathEntryWins() {
+    ScriptpathIndex underTest = new ScriptpathIndex(Arrays.asList(first, second));
+    assertThat(underTest.find("/a/b/C.groovy"), is(new File(first, "a/b/C.groovy")));
+    assertThat(underTest.find("D.groovy"), is(new File(second, "D.groovy")));
+  }
+
+  @Test
+  public void onlyGroovySourcesIndexed() {
+    ScriptpathIndex underTest = new ScriptpathIndex(Arrays.asList(first, second));
+    assertThat(underTest.find("/notes.txt"), nullValue());
+    assertThat(underTest.find("/a/Missing.groovy"), nullValue());
+  }
+
+  @Test
+  public void addedSourceMakesIndexStale() throws Exception {
+    ScriptpathIndex underTest = new ScriptpathIndex(Arrays.asList(first, second));
+    assertThat(underTest.isCurrent(), is(true));
+
+    touch(new File(first, "a/E.groovy"));
+    new File(first, "a").setLastModified(PAST + 1000);
+    assertThat(underTest.isCurrent(), is(false));
+  }
+
+  @Test
+  public void recentlyModifiedDirectoryIsNotCurrent() {
+    new File(first, "a").setLastModified(System.currentTimeMillis());
+    ScriptpathIndex underTest = new ScriptpathIndex(Arrays.asList(first, second));
+    assertThat(underTest.isCurrent(), is(false));
+  }
+
+  @Test
+  public void resourceLoaderCachesLookups() throws Exception {
+    ClassLoader classLoader = mock(ClassLoader.class);
+    ScriptpathIndex index = new ScriptpathIndex(Arrays.asList(first, second));
+    MojoResourceLoader underTest = new MojoResourceLoader(classLoader, null, index);
+
+    URL url = underTest.loadResource("a.b.C");
+    assertThat(url, is(new File(first, "a/b/C.groovy").toURI().toURL()));
+    assertThat(underTest.loadResource("a.b.C"), is(url));
+
+    assertThat(underTest.loadResource("x.Missing"), nullValue());
+    assertThat(underTest.loadResource("x.Missing"), nullValue());
+    // both by the first lookup; once directly and once by the fallback of the super-class
+    verify(classLoader, times(2)).getResource("/x/Missing.groovy");
+  }
+}
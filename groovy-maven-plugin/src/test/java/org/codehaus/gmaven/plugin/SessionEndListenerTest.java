@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link SessionEndListener}.
+ */
+public class SessionEndListenerTest
+    extends TestSupport
+{
+  private MavenExecutionRequest request;
+
+  private ExecutionListener original;
+
+  private Runnable task;
+
+  private ExecutionEvent event;
+
+  @Before
+  public void setUp() throws Exception {
+    original = mock(ExecutionListener.class);
+    request = new DefaultMavenExecutionRequest().setExecutionListener(original);
+    task = mock(Runnable.class);
+    event = mock(ExecutionEvent.class);
+  }
+
+  @Test
+  public void sessionEndRunsTaskAfterDelegate() {
+    SessionEndListener.install(request, task);
+    request.getExecutionListener().sessionEnded(event);
+
+    InOrder order = inOrder(original, task);
+    order.verify(original).sessionEnded(event);
+    order.verify(task).run();
+  }
+
+  @Test
+  public void eventsDelegated() {
+    SessionEndListener.install(request, task);
+    ExecutionListener listener = request.getExecutionListener();
+    listener.sessionStarted(event);
+    listener.projectStarted(event);
+    listener.mojoFailed(event);
+
+    verify(original).sessionStarted(event);
+    verify(original).projectStarted(event);
+    verify(original).mojoFailed(event);
+    verify(task, never()).run();
+  }
+
+  @Test
+  public void installedOnce() {
+    SessionEndListener.install(request, task);
+    ExecutionListener listener = request.getExecutionListener();
+    SessionEndListener.install(request, task);
+
+    assertThat(request.getExecutionListener(), sameInstance(listener));
+    listener.sessionEnded(event);
+    verify(task, times(1)).run();
+  }
+
+  @Test
+  public void installedWithoutListener() {
+    request.setExecutionListener(null);
+    SessionEndListener.install(request, task);
+
+    assertThat(request.getExecutionListener(), instanceOf(SessionEndListener.class));
+    request.getExecutionListener().sessionEnded(event);
+    verify(task).run();
+  }
+}
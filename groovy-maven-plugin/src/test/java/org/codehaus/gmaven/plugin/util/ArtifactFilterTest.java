@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ArtifactFilter}.
+ */
+public class ArtifactFilterTest
+    extends TestSupport
+{
+  private final Artifact guava = artifact("com.google.guava", "guava", null);
+
+  private final Artifact junit = artifact("junit", "junit", null);
+
+  private final Artifact sources = artifact("junit", "junit", "sources");
+
+  private static Artifact artifact(final String groupId, final String artifactId, final String classifier) {
+    return new DefaultArtifact(groupId, artifactId, "1", "test", "jar", classifier, new DefaultArtifactHandler("jar"));
+  }
+
+  @Test
+  public void emptyAcceptsAll() {
+    ArtifactFilter underTest = new ArtifactFilter(null, Collections.<String>emptyList());
+    assertThat(underTest.isEmpty(), is(true));
+    assertThat(underTest.accept(guava), is(true));
+    assertThat(underTest.accept(junit), is(true));
+  }
+
+  @Test
+  public void includes() {
+    ArtifactFilter underTest = new ArtifactFilter(Arrays.asList("com.google.*"), null);
+    assertThat(underTest.accept(guava), is(true));
+    assertThat(underTest.accept(junit), is(false));
+  }
+
+  @Test
+  public void excludes() {
+    ArtifactFilter underTest = new ArtifactFilter(null, Arrays.asList("junit:junit"));
+    assertThat(underTest.accept(guava), is(true));
+    assertThat(underTest.accept(junit), is(false));
+    assertThat(underTest.accept(sources), is(false));
+  }
+
+  @Test
+  public void excludeWinsOverInclude() {
+    ArtifactFilter underTest = new ArtifactFilter(Arrays.asList("*"), Arrays.asList("junit:*:jar:sources"));
+    assertThat(underTest.accept(guava), is(true));
+    assertThat(underTest.accept(junit), is(true));
+    assertThat(underTest.accept(sources), is(false));
+  }
+
+  @Test
+  public void wildcardWithinSegment() {
+    ArtifactFilter underTest = new ArtifactFilter(Arrays.asList("com.*.guava:gua*"), null);
+    assertThat(underTest.accept(guava), is(true));
+    assertThat(underTest.accept(junit), is(false));
+  }
+}
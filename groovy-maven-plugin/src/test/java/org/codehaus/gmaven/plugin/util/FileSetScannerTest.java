@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.apache.maven.model.FileSet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link FileSetScanner}.
+ */
+public class FileSetScannerTest
+    extends TestSupport
+{
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private FileSetScanner underTest;
+
+  private File dir;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new FileSetScanner(temp.getRoot());
+    dir = temp.newFolder("src");
+    touch("a.txt");
+    touch("b.xml");
+    touch("x/c.txt");
+    touch("x/y/d.txt");
+  }
+
+  private void touch(final String path) throws Exception {
+    File file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    file.createNewFile();
+  }
+
+  private static FileSet fileSet(final String directory, final String[] includes, final String... excludes) {
+    FileSet fileSet = new FileSet();
+    fileSet.setDirectory(directory);
+    fileSet.setIncludes(Arrays.asList(includes));
+    fileSet.setExcludes(Arrays.asList(excludes));
+    return fileSet;
+  }
+
+  @Test
+  public void relativeDirectory() {
+    assertThat(underTest.getDirectory(fileSet("src", new String[0])), is(dir));
+    assertThat(underTest.getDirectory(new FileSet()), is(temp.getRoot()));
+  }
+
+  @Test
+  public void allFilesWithoutIncludes() {
+    assertThat(underTest.scan(fileSet("src", new String[0])), contains(
+        new File(dir, "a.txt"), new File(dir, "b.xml"), new File(dir, "x/c.txt"), new File(dir, "x/y/d.txt")));
+  }
+
+  @Test
+  public void includesAndExcludes() {
+    FileSet fileSet = fileSet(dir.getPath(), new String[] { "**/*.txt" }, "x/y/");
+    assertThat(underTest.scan(fileSet), contains(new File(dir, "a.txt"), new File(dir, "x/c.txt")));
+  }
+
+  @Test
+  public void patterns() {
+    assertThat(FileSetScanner.compile("*.txt").matcher("a.txt").matches(), is(true));
+    assertThat(FileSetScanner.compile("*.txt").matcher("x/a.txt").matches(), is(false));
+    assertThat(FileSetScanner.compile("x/**").matcher("x/y/d.txt").matches(), is(true));
+    assertThat(FileSetScanner.compile("**/d.?xt").matcher("x/y/d.txt").matches(), is(true));
+    assertThat(FileSetScanner.compile("**/d.?xt").matcher("d.txt").matches(), is(true));
+  }
+}
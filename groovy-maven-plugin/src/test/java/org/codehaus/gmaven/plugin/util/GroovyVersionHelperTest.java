@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import groovy.lang.GroovySystem;
+import org.eclipse.aether.version.Version;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link GroovyVersionHelper}.
+ */
+public class GroovyVersionHelperTest
+    extends TestSupport
+{
+  private GroovyVersionHelper underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new GroovyVersionHelper(new VersionHelper());
+  }
+
+  @Test
+  public void detectFromReleaseInfo() {
+    Version version = underTest.detectVersion(getClass().getClassLoader());
+    log(version);
+    assertThat(version.toString(), is(GroovySystem.getVersion()));
+    assertThat(underTest.detectVersion(getClass().getClassLoader()), sameInstance(version));
+  }
+
+  @Test
+  public void groovyMissing() {
+    ClassLoader classLoader = new URLClassLoader(new URL[0], null);
+    assertThat(underTest.detectVersion(classLoader), nullValue());
+  }
+}
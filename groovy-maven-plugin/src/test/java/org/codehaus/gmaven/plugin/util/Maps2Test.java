@@ -16,16 +16,24 @@
 package org.codehaus.gmaven.plugin.util;
 
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -53,4 +61,80 @@ public class Maps2Test
     Map<String, String> props2 = Maps2.fromProperties(props1);
     assertThat(props2, hasEntry("foo", null));
   }
+
+  @Test
+  public void toProperties_nullValueSkipped() throws Exception {
+    Map<String, String> map = new HashMap<String, String>();
+    map.put("foo", "bar");
+    map.put("baz", null);
+    Properties props = Maps2.toProperties(map);
+
+    assertThat(props.getProperty("foo"), is("bar"));
+    assertThat(props.containsKey("baz"), is(false));
+    assertThat(props.size(), is(1));
+  }
+
+  @Test
+  public void toProperties_lookups() throws Exception {
+    Properties props = Maps2.toProperties(ImmutableMap.of("foo", "bar"));
+
+    assertThat(props.getOrDefault("foo", "default"), is((Object) "bar"));
+    assertThat(props.getOrDefault("missing", "default"), is((Object) "default"));
+
+    final Map<Object, Object> visited = new LinkedHashMap<Object, Object>();
+    props.forEach(new BiConsumer<Object, Object>()
+    {
+      @Override
+      public void accept(final Object key, final Object value) {
+        visited.put(key, value);
+      }
+    });
+    assertThat(visited, hasEntry((Object) "foo", (Object) "bar"));
+    assertThat(visited.size(), is(1));
+  }
+
+  @Test
+  public void toProperties_modifications() throws Exception {
+    Properties props = Maps2.toProperties(ImmutableMap.of("a", "A", "b", "B", "c", "C", "d", "D"));
+
+    assertThat(props.putIfAbsent("a", "X"), is((Object) "A"));
+    assertThat(props.putIfAbsent("e", "E"), nullValue());
+    assertThat(props.computeIfAbsent("b", new Function<Object, Object>()
+    {
+      @Override
+      public Object apply(final Object key) {
+        return "X";
+      }
+    }), is((Object) "B"));
+    assertThat(props.compute("c", new BiFunction<Object, Object, Object>()
+    {
+      @Override
+      public Object apply(final Object key, final Object value) {
+        return value + "1";
+      }
+    }), is((Object) "C1"));
+    assertThat(props.merge("d", "2", new BiFunction<Object, Object, Object>()
+    {
+      @Override
+      public Object apply(final Object value, final Object given) {
+        return value + (String) given;
+      }
+    }), is((Object) "D2"));
+    assertThat(props.replace("a", "A1"), is((Object) "A"));
+    assertThat(props.replace("missing", "X"), nullValue());
+
+    props.replaceAll(new BiFunction<Object, Object, Object>()
+    {
+      @Override
+      public Object apply(final Object key, final Object value) {
+        return ((String) value).toLowerCase();
+      }
+    });
+    assertThat(props.getProperty("a"), is("a1"));
+    assertThat(props.getProperty("b"), is("b"));
+    assertThat(props.getProperty("c"), is("c1"));
+    assertThat(props.getProperty("d"), is("d2"));
+    assertThat(props.getProperty("e"), is("e"));
+    assertThat(props.size(), is(5));
+  }
 }
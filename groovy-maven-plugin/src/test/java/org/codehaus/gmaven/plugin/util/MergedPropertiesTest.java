@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link MergedProperties}.
+ */
+public class MergedPropertiesTest
+    extends TestSupport
+{
+  private static MergedProperties merge(final Map<String, String>... layers) {
+    return new MergedProperties(Arrays.asList(layers));
+  }
+
+  @Test
+  public void lastLayerWins() {
+    MergedProperties underTest = merge(ImmutableMap.of("a", "1", "b", "2"), ImmutableMap.of("a", "3"));
+    assertThat(underTest.get("a"), is("3"));
+    assertThat(underTest.get("b"), is("2"));
+    assertThat(underTest.get("c"), nullValue());
+  }
+
+  @Test
+  public void chainResolvedOnce() {
+    Map<String, String> layer = spy(new HashMap<String, String>());
+    layer.put("p0", "x");
+    for (int i = 1; i <= 6; i++) {
+      layer.put("p" + i, "${p" + (i - 1) + "}" + i);
+    }
+    layer.put("q", "${p6}|${p6}|${p3}");
+    MergedProperties underTest = merge(layer);
+
+    assertThat(underTest.get("q"), is("x123456|x123456|x123"));
+    assertThat(underTest.get("p6"), is("x123456"));
+    assertThat(underTest.get("q"), is("x123456|x123456|x123"));
+
+    // each raw value is read once
+    verify(layer, times(8)).get(any());
+  }
+
+  @Test
+  public void unknownReferenceKept() {
+    MergedProperties underTest = merge(ImmutableMap.of("a", "${missing}-A"));
+    assertThat(underTest.get("a"), is("${missing}-A"));
+  }
+
+  @Test
+  public void cycleKeepsOriginalValue() {
+    Map<String, String> layer = ImmutableMap.of(
+        "a", "${b}",
+        "b", "x${c}",
+        "c", "${a}",
+        "d", "${a}-D",
+        "e", "${e}"
+    );
+    MergedProperties underTest = merge(layer);
+
+    assertThat(underTest.get("d"), is("${a}-D"));
+    assertThat(underTest.get("a"), is("${b}"));
+    assertThat(underTest.get("b"), is("x${c}"));
+    assertThat(underTest.get("c"), is("${a}"));
+    assertThat(underTest.get("e"), is("${e}"));
+  }
+
+  @Test
+  public void nullHidesLowerLayers() {
+    Map<String, String> top = new HashMap<String, String>();
+    top.put("a", null);
+    List<Map<String, String>> layers = Arrays.asList(ImmutableMap.of("a", "1", "b", "${a}"), top);
+    MergedProperties underTest = new MergedProperties(layers);
+
+    assertThat(underTest.get("a"), nullValue());
+    assertThat(underTest.containsKey("a"), is(false));
+    assertThat(underTest.get("b"), is("${a}"));
+    assertThat(underTest.size(), is(1));
+  }
+}
@@ -15,15 +15,22 @@
  */
 package org.codehaus.gmaven.plugin.util;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.maven.project.MavenProject;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -36,7 +43,7 @@ public class PropertiesBuilderTest
 
   @Before
   public void setUp() throws Exception {
-    underTest = new PropertiesBuilder();
+    underTest = new PropertiesBuilder(new PropertiesSnapshotCache());
   }
 
   @Test
@@ -56,4 +63,54 @@ public class PropertiesBuilderTest
 
     assertThat(props, hasEntry("foo", "baz"));
   }
+
+  @Test
+  public void properties_overrideProject() throws Exception {
+    MavenProject project = new MavenProject();
+    project.getProperties().setProperty("foo", "bar");
+    project.getProperties().setProperty("baz", "ick");
+    underTest.setProject(project);
+    underTest.setProperties(ImmutableMap.of("foo", "baz"));
+    Map<String, String> props = underTest.build();
+
+    assertThat(props, hasEntry("foo", "baz"));
+    assertThat(props, hasEntry("baz", "ick"));
+  }
+
+  @Test
+  public void references_resolved() throws Exception {
+    underTest.setDefaults(ImmutableMap.of("a", "A", "b", "${a}-B"));
+    underTest.setProperties(ImmutableMap.of("a", "X", "c", "${b}-C"));
+    Map<String, String> props = underTest.build();
+
+    assertThat(props.get("b"), is("X-B"));
+    assertThat(props.get("c"), is("X-B-C"));
+    assertThat(props, hasEntry("c", "X-B-C"));
+  }
+
+  @Test
+  public void nullValue_hidesProperty() throws Exception {
+    Map<String, String> properties = new HashMap<String, String>();
+    properties.put("foo", null);
+    underTest.setDefaults(ImmutableMap.of("foo", "bar"));
+    underTest.setProperties(properties);
+    Map<String, String> props = underTest.build();
+
+    assertThat(props.get("foo"), nullValue());
+    assertThat(props, not(hasKey("foo")));
+  }
+
+  @Test
+  public void asProperties() throws Exception {
+    underTest.setDefaults(ImmutableMap.of("foo", "bar"));
+    Properties props = Maps2.toProperties(underTest.build());
+
+    assertThat(props.getProperty("foo"), is("bar"));
+    assertThat(props.getProperty("missing", "default"), is("default"));
+
+    props.setProperty("baz", "ick");
+    assertThat(props.getProperty("foo"), is("bar"));
+    assertThat(props.getProperty("baz"), is("ick"));
+    assertThat(props.size(), is(2));
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link PropertiesSnapshotCache}.
+ */
+public class PropertiesSnapshotCacheTest
+    extends TestSupport
+{
+  private PropertiesSnapshotCache underTest;
+
+  private Properties properties;
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new PropertiesSnapshotCache();
+    properties = new Properties();
+    properties.setProperty("foo", "bar");
+    properties.put("ignored", 1);
+  }
+
+  @Test
+  public void snapshotShared() {
+    Map<String, String> snapshot = underTest.get(properties);
+    assertThat(snapshot, hasEntry("foo", "bar"));
+    assertThat(snapshot.size(), is(1));
+    assertThat(underTest.get(properties), sameInstance(snapshot));
+  }
+
+  @Test
+  public void snapshotReplacedWhenChanged() {
+    Map<String, String> snapshot = underTest.get(properties);
+
+    properties.setProperty("foo", "baz");
+    Map<String, String> changed = underTest.get(properties);
+    assertThat(changed, not(sameInstance(snapshot)));
+    assertThat(changed, hasEntry("foo", "baz"));
+    assertThat(snapshot, hasEntry("foo", "bar"));
+
+    properties.setProperty("new", "value");
+    assertThat(underTest.get(properties), hasEntry("new", "value"));
+  }
+
+  @Test
+  public void snapshotReplacedWhenChangedWithSameHashCode() {
+    // "Aa" and "BB" have the same hash-code; size and hash-code of the properties are unchanged
+    properties.setProperty("foo", "Aa");
+    Map<String, String> snapshot = underTest.get(properties);
+    int hashCode = properties.hashCode();
+
+    properties.setProperty("foo", "BB");
+    assertThat(properties.hashCode(), is(hashCode));
+    Map<String, String> changed = underTest.get(properties);
+    assertThat(changed, not(sameInstance(snapshot)));
+    assertThat(changed, hasEntry("foo", "BB"));
+  }
+
+  @Test
+  public void snapshotReplacedWhenDefaultsChanged() {
+    Properties defaults = new Properties();
+    defaults.setProperty("default", "value");
+    Properties withDefaults = new Properties(defaults);
+    assertThat(underTest.get(withDefaults), hasEntry("default", "value"));
+
+    defaults.setProperty("default", "changed");
+    assertThat(underTest.get(withDefaults), hasEntry("default", "changed"));
+  }
+
+  @Test
+  public void equalPropertiesHaveOwnSnapshots() {
+    Properties other = new Properties();
+    other.putAll(properties);
+    Map<String, String> snapshot = underTest.get(properties);
+    other.setProperty("foo", "other");
+    assertThat(underTest.get(other), hasEntry("foo", "other"));
+    assertThat(underTest.get(properties), sameInstance(snapshot));
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2006-present the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.gmaven.plugin.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link PropertyExpression}.
+ */
+public class PropertyExpressionTest
+    extends TestSupport
+{
+  @Test
+  public void literal() {
+    PropertyExpression underTest = PropertyExpression.parse("foo $ {bar}");
+    assertThat(underTest.isLiteral(), is(true));
+    assertThat(underTest.getReferences(), empty());
+    assertThat(underTest.render(Collections.<String>emptyList()), is("foo $ {bar}"));
+  }
+
+  @Test
+  public void references() {
+    PropertyExpression underTest = PropertyExpression.parse("${a}-${b}/${a}");
+    assertThat(underTest.isLiteral(), is(false));
+    assertThat(underTest.getReferences(), contains("a", "b", "a"));
+    assertThat(underTest.render(Arrays.asList("1", "2", "1")), is("1-2/1"));
+  }
+
+  @Test
+  public void missingValueKept() {
+    PropertyExpression underTest = PropertyExpression.parse("x${a}y");
+    assertThat(underTest.render(Arrays.asList((String) null)), is("x${a}y"));
+  }
+
+  @Test
+  public void emptyAndUnterminatedAreLiteral() {
+    PropertyExpression underTest = PropertyExpression.parse("${}${a");
+    assertThat(underTest.isLiteral(), is(true));
+    assertThat(underTest.render(Collections.<String>emptyList()), is("${}${a"));
+  }
+}